@@ -0,0 +1,75 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes JVM options to a {@code java @argfile}, so the process command line
+ * stays short however long the classpath or module path is.
+ *
+ * Files live in {@code launch-plans/args/} and are named by the hash of their
+ * content: a launch plan with the same options reuses the file it already
+ * has, and a changed plan gets a new one. Every argument is double-quoted,
+ * with backslashes, quotes and line breaks escaped, which the launcher's
+ * argfile parser reads back verbatim on every platform.
+ *
+ * Disable with {@code -Dlauncher.argfile=false}.
+ */
+public final class ArgFile {
+    private ArgFile() {
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("launcher.argfile", "true"));
+    }
+
+    /**
+     * Returns an argfile holding {@code args}, writing it if it does not exist
+     * yet.
+     */
+    public static File write(File workDir, List<String> args) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String arg : args) {
+            sb.append(quote(arg)).append('\n');
+        }
+        byte[] content = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        File dir = new File(workDir, "launch-plans/args");
+        File file = new File(dir, Hashing.toHex(Hashing.newSha1().digest(content)) + ".args");
+        if (file.isFile() && file.length() == content.length)
+            return file;
+
+        dir.mkdirs();
+        Path temp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(sb.toString());
+            }
+            DownloadEngine.commit(temp, file.toPath());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return file;
+    }
+
+    static String quote(String arg) {
+        StringBuilder sb = new StringBuilder(arg.length() + 2).append('"');
+        for (int i = 0; i < arg.length(); i++) {
+            char c = arg.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
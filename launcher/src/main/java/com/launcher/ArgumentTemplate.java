@@ -0,0 +1,115 @@
+package com.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * One launch argument split into literal text and {@code ${name}} slots, so it
+ * can be filled in a single pass instead of trying every variable on it.
+ *
+ * An argument that is a single slot (most of them) is filled with the value
+ * itself. A placeholder with no value is left as written and reported through
+ * the {@code unknown} set.
+ */
+public final class ArgumentTemplate {
+    private final String[] literals;
+    private final String[] slots;
+
+    private ArgumentTemplate(List<String> literals, List<String> slots) {
+        this.literals = literals.toArray(new String[0]);
+        this.slots = slots.toArray(new String[0]);
+    }
+
+    public static ArgumentTemplate compile(String arg) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = arg.indexOf("${", pos);
+            int close = open < 0 ? -1 : arg.indexOf('}', open + 2);
+            if (close < 0) {
+                literals.add(arg.substring(pos));
+                break;
+            }
+            literals.add(arg.substring(pos, open));
+            slots.add(arg.substring(open + 2, close));
+            pos = close + 1;
+        }
+        return new ArgumentTemplate(literals, slots);
+    }
+
+    /**
+     * Compiles a version's {@code arguments.game} or {@code arguments.jvm}
+     * list. Entries with rules are kept only if {@code applies} accepts their
+     * rule list.
+     */
+    public static List<ArgumentTemplate> compileAll(List<Object> args, Predicate<Object> applies) {
+        List<ArgumentTemplate> templates = new ArrayList<>(args.size());
+        for (Object arg : args) {
+            if (arg instanceof String) {
+                templates.add(compile((String) arg));
+            } else if (arg instanceof Map) {
+                // { "rules": [...], "value": ["--foo", "bar"] } or "value": "--foo"
+                Map<?, ?> map = (Map<?, ?>) arg;
+                if (!applies.test(map.get("rules")))
+                    continue;
+                Object value = map.get("value");
+                if (value instanceof String) {
+                    templates.add(compile((String) value));
+                } else if (value instanceof List) {
+                    for (Object v : (List<?>) value) {
+                        if (v instanceof String)
+                            templates.add(compile((String) v));
+                    }
+                }
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * Compiles a pre-1.13 {@code minecraftArguments} string. Arguments are
+     * separated by any run of whitespace.
+     */
+    public static List<ArgumentTemplate> compileLegacy(String args) {
+        List<ArgumentTemplate> templates = new ArrayList<>();
+        for (String arg : args.trim().split("\\s+")) {
+            if (!arg.isEmpty())
+                templates.add(compile(arg));
+        }
+        return templates;
+    }
+
+    public String fill(Map<String, String> variables, Set<String> unknown) {
+        if (slots.length == 0)
+            return literals[0];
+        if (slots.length == 1 && literals[0].isEmpty() && literals[1].isEmpty()) {
+            String value = variables.get(slots[0]);
+            if (value != null)
+                return value;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < slots.length; i++) {
+            sb.append(literals[i]);
+            String value = variables.get(slots[i]);
+            if (value != null) {
+                sb.append(value);
+            } else {
+                unknown.add(slots[i]);
+                sb.append("${").append(slots[i]).append('}');
+            }
+        }
+        return sb.append(literals[slots.length]).toString();
+    }
+
+    public static void fillAll(List<ArgumentTemplate> templates, Map<String, String> variables, List<String> out,
+            Set<String> unknown) {
+        for (ArgumentTemplate template : templates) {
+            out.add(template.fill(variables, unknown));
+        }
+    }
+}
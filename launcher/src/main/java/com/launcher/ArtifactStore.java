@@ -0,0 +1,120 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Optional machine-wide content-addressed store shared by several work
+ * directories. Objects live at {@code <store>/<first two hex chars>/<sha1>} and
+ * are hard-linked into each work dir's {@code libraries/} and
+ * {@code assets/objects/}, so a second work dir needs neither network nor extra
+ * disk for content the first one already fetched.
+ *
+ * Enabled by the {@code launcher.store} system property or the
+ * {@code SIMPLELAUNCHER_STORE} environment variable. Only objects that passed
+ * SHA-1 verification are ever published.
+ */
+public class ArtifactStore {
+    private static final ArtifactStore SHARED = fromEnvironment();
+
+    private final File root;
+
+    public ArtifactStore(File root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the configured store, or null if no shared store is configured.
+     */
+    public static ArtifactStore shared() {
+        return SHARED;
+    }
+
+    private static ArtifactStore fromEnvironment() {
+        String path = System.getProperty("launcher.store");
+        if (path == null || path.isEmpty())
+            path = System.getenv("SIMPLELAUNCHER_STORE");
+        if (path == null || path.isEmpty())
+            return null;
+        System.out.println("Using shared artifact store at " + path);
+        return new ArtifactStore(new File(path));
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * Places the stored object for {@code sha1} at {@code target} (hard link,
+     * else copy). Returns false if the store does not have it.
+     *
+     * @param size expected size, or a negative value if unknown
+     */
+    public boolean linkInto(String sha1, long size, File target) throws IOException {
+        if (sha1 == null || sha1.isEmpty())
+            return false;
+        File stored = objectFile(sha1);
+        if (!stored.isFile() || (size >= 0 && stored.length() != size))
+            return false;
+
+        File parent = target.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        // Link under a temporary name first so the target never appears half-written
+        Path temp = parent.toPath().resolve(target.getName() + ".link-" + System.nanoTime());
+        try {
+            link(stored.toPath(), temp);
+            try {
+                Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a verified file to the store if it is not already there.
+     */
+    public void publish(String sha1, File source) throws IOException {
+        if (sha1 == null || sha1.isEmpty())
+            return;
+        File stored = objectFile(sha1);
+        if (stored.isFile())
+            return;
+
+        stored.getParentFile().mkdirs();
+        Path temp = stored.toPath().resolveSibling(stored.getName() + ".publish-" + System.nanoTime());
+        try {
+            link(source.toPath(), temp);
+            Files.move(temp, stored.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Another launcher instance published it first
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private File objectFile(String sha1) {
+        String hash = sha1.toLowerCase();
+        return new File(root, hash.substring(0, 2) + "/" + hash);
+    }
+
+    private static void link(Path existing, Path link) throws IOException {
+        try {
+            Files.createLink(link, existing);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | IOException e) {
+            // Store on a different volume than the work dir, or no hard link support
+            Files.copy(existing, link);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.launcher;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk record of which asset objects have been verified, stored under
+ * {@code assets/ledger/}.
+ *
+ * {@code objects.txt} holds one line per verified object: hash, size and the
+ * mtime observed right after verification. An object whose size and mtime
+ * still match its entry is trusted without re-hashing.
+ *
+ * {@code <index>.verified} marks an index whose objects were all verified; it
+ * stores the size and mtime of the index file, so a warm launch of an
+ * unchanged index costs one stat and one small read.
+ */
+public class AssetLedger {
+    private static final String FORMAT = "v1";
+
+    private final File ledgerDir;
+    private final File objectsFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private boolean loaded;
+
+    public AssetLedger(File assetsDir) {
+        this.ledgerDir = new File(assetsDir, "ledger");
+        this.objectsFile = new File(ledgerDir, "objects.txt");
+    }
+
+    /**
+     * Returns true if every object of {@code indexId} was verified and the index
+     * file has not changed since.
+     */
+    public boolean isIndexVerified(String indexId, File indexFile) {
+        File marker = markerFile(indexId);
+        if (!marker.isFile() || !indexFile.isFile())
+            return false;
+        try {
+            String stored = new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8).trim();
+            return stored.equals(markerContent(indexFile));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void markIndexVerified(String indexId, File indexFile) throws IOException {
+        writeAtomically(markerFile(indexId).toPath(), markerContent(indexFile) + "\n");
+    }
+
+    public void invalidateIndex(String indexId) {
+        markerFile(indexId).delete();
+    }
+
+    /**
+     * Returns true if {@code file} is recorded as verified for {@code hash} and
+     * its size and mtime have not changed since.
+     */
+    public boolean isVerified(String hash, File file) throws IOException {
+        load();
+        Entry entry = entries.get(hash);
+        return entry != null && entry.size == file.length() && entry.mtime == file.lastModified();
+    }
+
+    public void recordVerified(String hash, File file) {
+        loadQuietly();
+        entries.put(hash, new Entry(file.length(), file.lastModified()));
+    }
+
+    public void forget(String hash) {
+        loadQuietly();
+        entries.remove(hash);
+    }
+
+    /**
+     * Writes the stored entries merged with everything recorded since, so
+     * objects verified on a cold install are trusted on the next launch.
+     */
+    public synchronized void save() throws IOException {
+        load();
+        StringBuilder sb = new StringBuilder(entries.size() * 64);
+        sb.append(FORMAT).append('\n');
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue().size).append(' ')
+                    .append(e.getValue().mtime).append('\n');
+        }
+        writeAtomically(objectsFile.toPath(), sb.toString());
+    }
+
+    /**
+     * Loads the stored entries before the first change, so a later
+     * {@link #load()} cannot bring back an entry that was forgotten.
+     */
+    private void loadQuietly() {
+        try {
+            load();
+        } catch (IOException e) {
+            // Unreadable ledger: its objects are simply verified again
+        }
+    }
+
+    private synchronized void load() throws IOException {
+        if (loaded)
+            return;
+        loaded = true;
+        if (!objectsFile.isFile())
+            return;
+
+        try (BufferedReader reader = Files.newBufferedReader(objectsFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!FORMAT.equals(reader.readLine()))
+                return; // Unknown format, start over
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 3)
+                    continue;
+                try {
+                    // Entries recorded in memory are newer than the file
+                    entries.putIfAbsent(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                } catch (NumberFormatException e) {
+                    // Skip damaged lines; the object is simply re-verified
+                }
+            }
+        }
+    }
+
+    private File markerFile(String indexId) {
+        return new File(ledgerDir, indexId + ".verified");
+    }
+
+    private static String markerContent(File indexFile) {
+        return FORMAT + " " + indexFile.length() + " " + indexFile.lastModified();
+    }
+
+    private void writeAtomically(Path target, String content) throws IOException {
+        ledgerDir.mkdirs();
+        Path temp = Files.createTempFile(ledgerDir.toPath(), target.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(content);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static class Entry {
+        final long size;
+        final long mtime;
+
+        Entry(long size, long mtime) {
+            this.size = size;
+            this.mtime = mtime;
+        }
+    }
+}
@@ -2,31 +2,106 @@ package com.launcher;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-
-import com.google.gson.Gson;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntPredicate;
+
 import com.launcher.model.Version;
 
 public class AssetManager {
+    private static final int BACKGROUND_INITIAL_LIMIT = 2;
+    private static final int BACKGROUND_MAX_LIMIT = 6;
+
+    private final File workDir;
     private final File assetsDir;
-    private final Gson gson;
+    private final AssetLedger ledger;
 
     public AssetManager(File workDir) {
+        this.workDir = workDir;
         this.assetsDir = new File(workDir, "assets");
-        this.gson = new Gson();
+        this.ledger = new AssetLedger(assetsDir);
     }
 
     public void downloadAssets(Version version) throws IOException {
-        if (version.getAssetIndex() == null)
+        File indexFile = prepareIndex(version);
+        if (indexFile == null)
             return;
 
+        String indexId = version.getAssetIndex().getId();
+        AssetObjects index = AssetObjects.parse(indexFile);
+        System.out.println("Verifying " + index.size() + " assets...");
+
+        DownloadScheduler.Result result = fetch(index, i -> true, new DownloadScheduler("assets"));
+        finish(indexId, indexFile, index, result.isSuccessful());
+        result.throwIfFailed("assets");
+    }
+
+    /**
+     * Downloads the asset index and everything needed to reach the title screen,
+     * then returns while sounds and music keep downloading at a lower
+     * concurrency in the background. The returned future completes when the
+     * background part is done (or immediately if nothing was deferred).
+     *
+     * Legacy layouts are fetched in full up front, since they are materialized
+     * by name and old versions only scan them once at startup.
+     */
+    public CompletableFuture<Void> downloadAssetsCriticalFirst(Version version) throws IOException {
+        File indexFile = prepareIndex(version);
+        if (indexFile == null)
+            return CompletableFuture.completedFuture(null);
+
+        String indexId = version.getAssetIndex().getId();
+        AssetObjects index = AssetObjects.parse(indexFile);
+        if (index.isVirtual() || index.isMapToResources()) {
+            System.out.println("Verifying " + index.size() + " legacy assets...");
+            DownloadScheduler.Result result = fetch(index, i -> true, new DownloadScheduler("assets"));
+            finish(indexId, indexFile, index, result.isSuccessful());
+            result.throwIfFailed("assets");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        System.out.println("Verifying " + index.size() + " assets (boot-critical first)...");
+        DownloadScheduler.Result critical = fetch(index, i -> !isDeferrable(index.name(i)),
+                new DownloadScheduler("assets"));
+        if (!critical.isSuccessful()) {
+            finish(indexId, indexFile, index, false);
+            critical.throwIfFailed("boot-critical assets");
+        }
+
+        CompletableFuture<Void> background = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                DownloadScheduler.Result deferred = fetch(index, i -> isDeferrable(index.name(i)),
+                        new DownloadScheduler("assets-background", BACKGROUND_INITIAL_LIMIT, 1,
+                                BACKGROUND_MAX_LIMIT));
+                finish(indexId, indexFile, index, deferred.isSuccessful());
+                deferred.throwIfFailed("background assets");
+                background.complete(null);
+            } catch (Exception e) {
+                background.completeExceptionally(e);
+            }
+        }, "assets-background");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return background;
+    }
+
+    /**
+     * Sounds and music are loaded lazily by the game, so they can arrive after
+     * it has started.
+     */
+    private static boolean isDeferrable(String name) {
+        return name.startsWith("minecraft/sounds/");
+    }
+
+    /**
+     * Ensures the index file is on disk. Returns null when there is nothing left
+     * to do (no index, or the ledger says this index is fully verified).
+     */
+    private File prepareIndex(Version version) throws IOException {
+        if (version.getAssetIndex() == null)
+            return null;
+
         System.out.println("Downloading assets for " + version.getAssetIndex().getId());
 
         // Download asset index
@@ -34,61 +109,107 @@ public class AssetManager {
         indexFile.getParentFile().mkdirs();
 
         if (!indexFile.exists()) {
-            downloadFile(version.getAssetIndex().getUrl(), indexFile);
+            DownloadEngine.shared().download(version.getAssetIndex().getUrl(), indexFile,
+                    version.getAssetIndex().getSha1(), -1);
+        }
+
+        String indexId = version.getAssetIndex().getId();
+        if (ledger.isIndexVerified(indexId, indexFile)) {
+            System.out.println("Assets for " + indexId + " already verified");
+            return null;
         }
+        return indexFile;
+    }
 
-        // Read asset index
-        String jsonContent = new String(Files.readAllBytes(indexFile.toPath()));
-        AssetIndex index = gson.fromJson(jsonContent, AssetIndex.class);
-
-        System.out.println("Verifying " + index.objects.size() + " assets...");
-
-        // Download assets with threads
-        ExecutorService executor = Executors.newFixedThreadPool(10); // 10 download threads
-        int[] count = { 0 };
-
-        for (Map.Entry<String, AssetObject> entry : index.objects.entrySet()) {
-            executor.submit(() -> {
-                try {
-                    AssetObject obj = entry.getValue();
-                    String hashHead = obj.hash.substring(0, 2);
-                    File objectFile = new File(assetsDir, "objects/" + hashHead + "/" + obj.hash);
-
-                    if (!objectFile.exists()) {
-                        String url = "https://resources.download.minecraft.net/" + hashHead + "/" + obj.hash;
-                        objectFile.getParentFile().mkdirs();
-                        downloadFile(url, objectFile);
-                        System.out.print(".");
-                    }
-                    count[0]++;
-                } catch (Exception e) {
-                    e.printStackTrace();
+    private DownloadScheduler.Result fetch(AssetObjects index, IntPredicate selected, DownloadScheduler scheduler)
+            throws IOException {
+        int selectedCount = 0;
+        for (int i = 0; i < index.size(); i++) {
+            if (!selected.test(i))
+                continue;
+            selectedCount++;
+            String hash = index.hash(i);
+            long size = index.objectSize(i);
+            scheduler.add(index.name(i), size, () -> {
+                String hashHead = hash.substring(0, 2);
+                File objectFile = new File(assetsDir, "objects/" + hashHead + "/" + hash);
+
+                if (isValid(hash, size, objectFile))
+                    return 0;
+
+                ArtifactStore store = ArtifactStore.shared();
+                if (store != null && store.linkInto(hash, size, objectFile)) {
+                    ledger.recordVerified(hash, objectFile);
+                    return 0;
                 }
+
+                String url = "https://resources.download.minecraft.net/" + hashHead + "/" + hash;
+                DownloadEngine.shared().download(url, objectFile, hash, size);
+                ledger.recordVerified(hash, objectFile);
+                if (store != null)
+                    store.publish(hash, objectFile);
+                return size;
             });
         }
 
-        executor.shutdown();
+        DownloadScheduler.Result result;
         try {
-            executor.awaitTermination(10, TimeUnit.MINUTES);
+            result = scheduler.run();
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading assets", e);
+        } finally {
+            ledger.save();
         }
-        System.out.println("Downloaded " + count[0] + " assets");
+
+        System.out.println("Verified " + result.getCompleted() + "/" + selectedCount + " assets, downloaded "
+                + result.getBytes() / 1024 + " KiB in " + result.getElapsedMillis() + " ms (final concurrency "
+                + result.getFinalLimit() + ")");
+        return result;
     }
 
-    private void downloadFile(String urlStr, File target) throws IOException {
-        try (InputStream in = new URL(urlStr).openStream()) {
-            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Marks the index verified once every object is in place; a partial result
+     * leaves the marker off so the next launch checks again.
+     */
+    private void finish(String indexId, File indexFile, AssetObjects index, boolean complete) throws IOException {
+        if (complete) {
+            materializeLegacyLayout(indexId, index);
+            ledger.markIndexVerified(indexId, indexFile);
+        } else {
+            ledger.invalidateIndex(indexId);
         }
     }
 
-    // Class for mapping assets to their objects
-    private static class AssetIndex {
-        public Map<String, AssetObject> objects;
+    /**
+     * Old versions read assets by name rather than by hash; link them into the
+     * layout they expect. Runs before the index is marked verified, so warm
+     * launches skip it along with the object checks.
+     */
+    private void materializeLegacyLayout(String indexId, AssetObjects index) throws IOException {
+        File targetDir = AssetMaterializer.targetDir(workDir, indexId, index);
+        if (targetDir == null)
+            return;
+
+        int changed = new AssetMaterializer(assetsDir).materialize(index, targetDir);
+        System.out.println("Materialized " + changed + " legacy assets into " + targetDir);
     }
 
-    private static class AssetObject {
-        public String hash;
-        public long size;
+    /**
+     * Checks an object on disk against the ledger, re-hashing it only when the
+     * ledger has no matching size/mtime entry for it.
+     */
+    private boolean isValid(String hash, long size, File objectFile) throws IOException {
+        // A size mismatch means a truncated write from an interrupted launch
+        if (!objectFile.isFile() || objectFile.length() != size)
+            return false;
+        if (ledger.isVerified(hash, objectFile))
+            return true;
+        if (hash.equals(Hashing.sha1(objectFile))) {
+            ledger.recordVerified(hash, objectFile);
+            return true;
+        }
+        ledger.forget(hash);
+        return false;
     }
 }
@@ -0,0 +1,150 @@
+package com.launcher;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lays out assets by name for versions that cannot read the hashed
+ * {@code objects/} store: {@code assets/virtual/<index>} for "virtual" indexes
+ * and {@code resources/} for {@code map_to_resources} ones (pre-1.7).
+ *
+ * Files are hard links into the object store, falling back to copies where
+ * links are not supported. The name-to-hash mapping of the last run is kept in
+ * a state file so later runs only touch entries that changed.
+ */
+public class AssetMaterializer {
+    private static final String STATE_FILE = ".materialized";
+
+    private final File objectsDir;
+
+    public AssetMaterializer(File assetsDir) {
+        this.objectsDir = new File(assetsDir, "objects");
+    }
+
+    /**
+     * Returns the directory legacy versions expect their assets in
+     * ({@code ${game_assets}}), or null if the index uses the modern layout.
+     */
+    public static File targetDir(File workDir, String indexId, AssetObjects index) {
+        if (index.isMapToResources())
+            return new File(workDir, "resources");
+        if (index.isVirtual())
+            return new File(workDir, "assets/virtual/" + indexId);
+        return null;
+    }
+
+    /**
+     * Resolves {@code ${game_assets}} for the launcher without re-reading the
+     * index: the virtual directory if one was materialized, {@code resources/}
+     * for the pre-1.6 index, and the regular assets root otherwise.
+     */
+    public static File resolveGameAssets(File workDir, String indexId) {
+        File virtualDir = new File(workDir, "assets/virtual/" + indexId);
+        if (virtualDir.isDirectory())
+            return virtualDir;
+        if ("pre-1.6".equals(indexId))
+            return new File(workDir, "resources");
+        return new File(workDir, "assets");
+    }
+
+    public int materialize(AssetObjects index, File targetDir) throws IOException {
+        Map<String, String> previous = readState(targetDir);
+        Map<String, String> current = new HashMap<>(index.size() * 2);
+        int changed = 0;
+        boolean linksSupported = true;
+
+        for (int i = 0; i < index.size(); i++) {
+            String name = index.name(i);
+            String hash = index.hash(i);
+            current.put(name, hash);
+
+            Path target = new File(targetDir, name).toPath();
+            if (hash.equals(previous.get(name)) && Files.exists(target))
+                continue;
+
+            Path source = new File(objectsDir, hash.substring(0, 2) + "/" + hash).toPath();
+            Files.createDirectories(target.getParent());
+            Files.deleteIfExists(target);
+            if (linksSupported) {
+                try {
+                    Files.createLink(target, source);
+                } catch (UnsupportedOperationException | IOException e) {
+                    if (refusesLinks(e))
+                        linksSupported = false;
+                    Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            changed++;
+        }
+
+        // Drop entries that were removed from the index since the last run
+        for (String name : previous.keySet()) {
+            if (!current.containsKey(name)) {
+                Files.deleteIfExists(new File(targetDir, name).toPath());
+                changed++;
+            }
+        }
+
+        if (changed > 0 || previous.isEmpty())
+            writeState(targetDir, current);
+        return changed;
+    }
+
+    /**
+     * True if {@code e} says this pair of directories cannot hold hard links at
+     * all: a different volume or a file system without them (e.g. FAT32). The
+     * JDK reports those as a plain {@link FileSystemException}; its subclasses
+     * (missing source, access denied) and other I/O errors only concern one
+     * file, which is copied without giving up on links for the rest.
+     */
+    private static boolean refusesLinks(Exception e) {
+        return e instanceof UnsupportedOperationException || e.getClass() == FileSystemException.class;
+    }
+
+    private Map<String, String> readState(File targetDir) throws IOException {
+        Map<String, String> state = new HashMap<>();
+        File file = new File(targetDir, STATE_FILE);
+        if (!file.isFile())
+            return state;
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // "<hash> <name>", names may contain spaces
+                int space = line.indexOf(' ');
+                if (space > 0)
+                    state.put(line.substring(space + 1), line.substring(0, space));
+            }
+        }
+        return state;
+    }
+
+    private void writeState(File targetDir, Map<String, String> state) throws IOException {
+        targetDir.mkdirs();
+        Path temp = Files.createTempFile(targetDir.toPath(), STATE_FILE, ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, String> e : state.entrySet()) {
+                    writer.write(e.getValue());
+                    writer.write(' ');
+                    writer.write(e.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, new File(targetDir, STATE_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
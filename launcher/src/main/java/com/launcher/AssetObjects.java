@@ -0,0 +1,159 @@
+package com.launcher;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Compact, read-only view of an asset index. Instead of one object and one
+ * 40-char String per entry, hashes are packed as 20 raw bytes in a single
+ * array and sizes live in a {@code long[]}; entry {@code i} spans
+ * {@code hashes[i * 20 .. i * 20 + 19]}.
+ */
+public class AssetObjects {
+    private static final int HASH_BYTES = 20;
+
+    private final String[] names;
+    private final byte[] hashes;
+    private final long[] sizes;
+    private final int count;
+    private final boolean virtual;
+    private final boolean mapToResources;
+
+    private AssetObjects(String[] names, byte[] hashes, long[] sizes, int count, boolean virtual,
+            boolean mapToResources) {
+        this.names = names;
+        this.hashes = hashes;
+        this.sizes = sizes;
+        this.count = count;
+        this.virtual = virtual;
+        this.mapToResources = mapToResources;
+    }
+
+    /**
+     * Streams {@code indexFile} with a {@link JsonReader}; the whole document is
+     * never held in memory as a String or a tree.
+     */
+    public static AssetObjects parse(File indexFile) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8);
+                JsonReader reader = new JsonReader(in)) {
+            return parse(reader);
+        }
+    }
+
+    static AssetObjects parse(JsonReader reader) throws IOException {
+        int capacity = 4096;
+        String[] names = new String[capacity];
+        byte[] hashes = new byte[capacity * HASH_BYTES];
+        long[] sizes = new long[capacity];
+        int count = 0;
+        boolean virtual = false;
+        boolean mapToResources = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            switch (field) {
+                case "objects":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (count == capacity) {
+                            capacity *= 2;
+                            names = Arrays.copyOf(names, capacity);
+                            hashes = Arrays.copyOf(hashes, capacity * HASH_BYTES);
+                            sizes = Arrays.copyOf(sizes, capacity);
+                        }
+                        names[count] = reader.nextName().intern();
+                        readObject(reader, hashes, sizes, count);
+                        count++;
+                    }
+                    reader.endObject();
+                    break;
+                case "virtual":
+                    virtual = reader.nextBoolean();
+                    break;
+                case "map_to_resources":
+                    mapToResources = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new AssetObjects(Arrays.copyOf(names, count), Arrays.copyOf(hashes, count * HASH_BYTES),
+                Arrays.copyOf(sizes, count), count, virtual, mapToResources);
+    }
+
+    private static void readObject(JsonReader reader, byte[] hashes, long[] sizes, int i) throws IOException {
+        boolean hasHash = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if ("hash".equals(field) && reader.peek() == JsonToken.STRING) {
+                decodeHex(reader.nextString(), hashes, i * HASH_BYTES);
+                hasHash = true;
+            } else if ("size".equals(field)) {
+                sizes[i] = reader.nextLong();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!hasHash)
+            throw new IOException("Asset entry without hash at " + reader.getPath());
+    }
+
+    private static void decodeHex(String hex, byte[] out, int offset) throws IOException {
+        if (hex.length() != HASH_BYTES * 2)
+            throw new IOException("Invalid asset hash: " + hex);
+        for (int j = 0; j < HASH_BYTES; j++) {
+            int hi = Character.digit(hex.charAt(j * 2), 16);
+            int lo = Character.digit(hex.charAt(j * 2 + 1), 16);
+            if (hi < 0 || lo < 0)
+                throw new IOException("Invalid asset hash: " + hex);
+            out[offset + j] = (byte) ((hi << 4) | lo);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public String name(int i) {
+        return names[i];
+    }
+
+    public long objectSize(int i) {
+        return sizes[i];
+    }
+
+    /**
+     * Returns the lowercase hex hash of entry {@code i}. Allocates a new String,
+     * so callers in hot loops should hold on to the result.
+     */
+    public String hash(int i) {
+        return Hashing.toHex(Arrays.copyOfRange(hashes, i * HASH_BYTES, (i + 1) * HASH_BYTES));
+    }
+
+    public long totalSize() {
+        long total = 0;
+        for (int i = 0; i < count; i++)
+            total += sizes[i];
+        return total;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public boolean isMapToResources() {
+        return mapToResources;
+    }
+}
@@ -0,0 +1,173 @@
+package com.launcher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide token-bucket rate limiter for downloads.
+ *
+ * In plain mode every transfer draws from one bucket. In fair-share mode each
+ * download group (e.g. "assets", "libraries") that currently has transfers in
+ * flight gets an equal slice of the rate, so a handful of library jars is not
+ * starved behind thousands of asset objects.
+ *
+ * Configured with {@code -Dlauncher.download.rateKiB=<KiB/s>} (0 or unset means
+ * unlimited) and {@code -Dlauncher.download.fairShare=true}. Time and sleeping
+ * are injectable so the limiter can be driven deterministically.
+ */
+public class BandwidthLimiter {
+    /** Tokens that may accumulate while idle, as a fraction of one second. */
+    private static final double BURST_SECONDS = 0.25;
+
+    private static final BandwidthLimiter SHARED = new BandwidthLimiter(
+            Long.getLong("launcher.download.rateKiB", 0L) * 1024,
+            Boolean.getBoolean("launcher.download.fairShare"),
+            System::nanoTime, BandwidthLimiter::sleepNanos);
+
+    public interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    private final LongSupplier clock;
+    private final Sleeper sleeper;
+    private final boolean fairShare;
+    private long bytesPerSecond;
+
+    private final Bucket global = new Bucket();
+    private final Map<String, Bucket> groups = new HashMap<>();
+    private final Map<String, Integer> active = new HashMap<>();
+
+    public BandwidthLimiter(long bytesPerSecond, boolean fairShare, LongSupplier clock, Sleeper sleeper) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.fairShare = fairShare;
+        this.clock = clock;
+        this.sleeper = sleeper;
+        global.rate = bytesPerSecond;
+    }
+
+    public static BandwidthLimiter shared() {
+        return SHARED;
+    }
+
+    public synchronized boolean isEnabled() {
+        return bytesPerSecond > 0;
+    }
+
+    public synchronized void setRate(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        global.rate = bytesPerSecond;
+        rebalance();
+    }
+
+    /**
+     * Registers a transfer for {@code group}; pair with {@link #end(String)}.
+     */
+    public synchronized void begin(String group) {
+        if (active.merge(group, 1, Integer::sum) == 1)
+            rebalance();
+    }
+
+    public synchronized void end(String group) {
+        Integer count = active.get(group);
+        if (count == null)
+            return;
+        if (count <= 1) {
+            active.remove(group);
+            rebalance();
+        } else {
+            active.put(group, count - 1);
+        }
+    }
+
+    /**
+     * Blocks until {@code bytes} may be transferred for {@code group}.
+     */
+    public void acquire(String group, long bytes) throws InterruptedIOException {
+        long wait;
+        synchronized (this) {
+            if (bytesPerSecond <= 0)
+                return;
+            Bucket bucket = fairShare ? groups.computeIfAbsent(group, g -> newGroupBucket()) : global;
+            wait = bucket.reserve(bytes, clock.getAsLong());
+        }
+        if (wait <= 0)
+            return;
+        try {
+            sleeper.sleep(wait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttling download");
+        }
+    }
+
+    /**
+     * Wraps {@code channel} so every read is charged to {@code group}.
+     */
+    public ReadableByteChannel throttle(ReadableByteChannel channel, String group) {
+        if (!isEnabled())
+            return channel;
+        return new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                int read = channel.read(dst);
+                if (read > 0)
+                    acquire(group, read);
+                return read;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    private Bucket newGroupBucket() {
+        Bucket bucket = new Bucket();
+        bucket.rate = shareRate();
+        return bucket;
+    }
+
+    private void rebalance() {
+        long share = shareRate();
+        for (Bucket bucket : groups.values()) {
+            bucket.rate = share;
+        }
+    }
+
+    private long shareRate() {
+        return Math.max(1, bytesPerSecond / Math.max(1, active.size()));
+    }
+
+    private static void sleepNanos(long nanos) throws InterruptedException {
+        Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+    }
+
+    /**
+     * Reservation-style bucket: each call books its bytes after the previous
+     * reservation and returns how long the caller must wait for them.
+     */
+    private static class Bucket {
+        long rate;
+        long nextFree = Long.MIN_VALUE;
+
+        long reserve(long bytes, long now) {
+            // Idle time only earns up to BURST_SECONDS of credit
+            long earliest = now - (long) (BURST_SECONDS * 1e9);
+            if (nextFree < earliest)
+                nextFree = earliest;
+            nextFree += (long) (bytes * 1e9 / rate);
+            return nextFree - now;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Per-version class data archives, so later launches map the game's classes
+ * from an archive instead of loading and verifying them again.
+ *
+ * The first launch of a classpath records an archive at exit (dynamic AppCDS
+ * with {@code -XX:ArchiveClassesAtExit}, or the AOT cache with
+ * {@code -XX:AOTCacheOutput} on Java 25+); later launches pass it with
+ * {@code -XX:SharedArchiveFile} or {@code -XX:AOTCache}. Archives live in
+ * {@code cds/} and are keyed by the classpath, the size and mtime of every
+ * entry, and the Java build, so a changed launch plan records a new archive
+ * and drops the version's old one. An archive is only published after the game
+ * exited normally; the JVM ignores one it cannot use.
+ *
+ * Each launch also times how long the game takes to log
+ * {@code Sound engine started} (reached on the way to the title screen) and
+ * reports the difference against the recording run.
+ *
+ * Enable with {@code -Dlauncher.cds=true}.
+ */
+public class ClassDataCache {
+    private static final String READY_MARKER = "Sound engine started";
+
+    private final File cacheDir;
+
+    public ClassDataCache(File workDir) {
+        this.cacheDir = new File(workDir, "cds");
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("launcher.cds");
+    }
+
+    private static boolean hasAotCache() {
+        return Runtime.version().feature() >= 25;
+    }
+
+    /**
+     * Picks the archive for {@code classpath}: uses it if it exists, otherwise
+     * sets up recording it.
+     */
+    public Run begin(String versionId, String classpath) throws IOException {
+        String versionName = versionId.replaceAll("[^A-Za-z0-9._-]+", "_");
+        String name = versionName + "-" + key(classpath).substring(0, 16);
+        File archive = new File(cacheDir, name + (hasAotCache() ? ".aot" : ".jsa"));
+        if (archive.isFile())
+            return new Run(archive, null);
+
+        cacheDir.mkdirs();
+        deleteOlder(name, versionName);
+        File recording = Files.createTempFile(cacheDir.toPath(), name, ".tmp").toFile();
+        // The JVM writes the archive itself and refuses some existing files
+        Files.delete(recording.toPath());
+        return new Run(archive, recording);
+    }
+
+    private static String key(String classpath) {
+        MessageDigest digest = Hashing.newSha1();
+        digest.update((System.getProperty("java.home") + "\n" + System.getProperty("java.vm.version") + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+        for (String entry : classpath.split(File.pathSeparator)) {
+            File file = new File(entry);
+            digest.update((entry + " " + file.length() + " " + file.lastModified() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return Hashing.toHex(digest.digest());
+    }
+
+    /**
+     * Removes archives (and their startup times) recorded for an older
+     * classpath of the same version.
+     */
+    private void deleteOlder(String name, String versionName) {
+        Pattern older = Pattern.compile(Pattern.quote(versionName + "-") + "[0-9a-f]{16}\\..*");
+        File[] files = cacheDir.listFiles((dir, n) -> older.matcher(n).matches() && !n.startsWith(name + "."));
+        if (files == null)
+            return;
+        for (File file : files) {
+            if (file.delete())
+                System.out.println("Dropped outdated class data file " + file.getName());
+        }
+    }
+
+    /**
+     * One launch using or recording an archive.
+     */
+    public class Run {
+        private final File archive;
+        private final File recording;
+
+        private Run(File archive, File recording) {
+            this.archive = archive;
+            this.recording = recording;
+        }
+
+        public boolean isRecording() {
+            return recording != null;
+        }
+
+        /** JVM options to put before the main class. */
+        public List<String> getOptions() {
+            List<String> options = new ArrayList<>(2);
+            if (hasAotCache())
+                options.add(isRecording() ? "-XX:AOTCacheOutput=" + recording.getAbsolutePath()
+                        : "-XX:AOTCache=" + archive.getAbsolutePath());
+            else
+                options.add(isRecording() ? "-XX:ArchiveClassesAtExit=" + recording.getAbsolutePath()
+                        : "-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            return options;
+        }
+
+        /**
+         * Times the game's startup from its log events.
+         */
+        public void watchStartup(LogEventParser events, long startNanos) {
+            events.addListener(new LogEventParser.Listener() {
+                @Override
+                public void onEvent(LogEventParser.Event event) {
+                    if (event.getMessage().contains(READY_MARKER)) {
+                        events.removeListener(this);
+                        report((event.getNanos() - startNanos) / 1_000_000);
+                    }
+                }
+            });
+        }
+
+        private void report(long millis) {
+            File baselineFile = new File(cacheDir, archive.getName() + ".startup");
+            try {
+                if (isRecording()) {
+                    Files.writeString(baselineFile.toPath(), millis + "\n", StandardCharsets.UTF_8);
+                    System.out.println("Startup took " + millis + " ms without class data archive (recording one)");
+                    return;
+                }
+                long baseline = baselineFile.isFile()
+                        ? Long.parseLong(Files.readString(baselineFile.toPath(), StandardCharsets.UTF_8).trim())
+                        : -1;
+                System.out.println("Startup took " + millis + " ms with class data archive"
+                        + (baseline > 0 ? " (" + (baseline - millis) + " ms faster than " + baseline + " ms without)"
+                                : ""));
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Could not record startup time: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Publishes a recorded archive once the game has exited normally.
+         */
+        public void finish(int exitCode) {
+            if (!isRecording())
+                return;
+            try {
+                if (exitCode == 0 && recording.isFile() && recording.length() > 0) {
+                    DownloadEngine.commit(recording.toPath(), archive.toPath());
+                    System.out.println("Recorded class data archive " + archive.getName() + " ("
+                            + archive.length() / 1024 + " KiB)");
+                }
+            } catch (IOException e) {
+                System.err.println("Could not store class data archive: " + e.getMessage());
+            } finally {
+                recording.delete();
+            }
+        }
+    }
+}
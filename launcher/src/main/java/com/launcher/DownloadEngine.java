@@ -0,0 +1,495 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP download engine used by every manager in the launcher.
+ * Wraps a single pooled {@link HttpClient} (keep-alive, HTTP/2 when the
+ * server offers it) and caps the number of concurrent transfers per host.
+ * Timeouts, stall detection, retries and hedging follow a {@link FetchPolicy};
+ * URLs that belong to a {@link MirrorSet} fail over to the other mirrors.
+ */
+public class DownloadEngine {
+    private static final String USER_AGENT = "SimpleLauncher/1.0";
+    private static final int DEFAULT_PER_HOST_LIMIT = 16;
+
+    private static final DownloadEngine SHARED = new DownloadEngine(DEFAULT_PER_HOST_LIMIT,
+            FetchPolicy.fromSystemProperties());
+
+    private static final ThreadLocal<String> GROUP = ThreadLocal.withInitial(() -> "default");
+
+    private final HttpClient client;
+    private final int perHostLimit;
+    private final FetchPolicy policy;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    public DownloadEngine(int perHostLimit) {
+        this(perHostLimit, FetchPolicy.fromSystemProperties());
+    }
+
+    public DownloadEngine(int perHostLimit, FetchPolicy policy) {
+        this.perHostLimit = perHostLimit;
+        this.policy = policy;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(policy.getConnectTimeout())
+                .build();
+    }
+
+    public static DownloadEngine shared() {
+        return SHARED;
+    }
+
+    /**
+     * Sets the bandwidth group that downloads started from the current thread
+     * are charged to (see {@link BandwidthLimiter}); null resets it.
+     */
+    public static void setCurrentGroup(String group) {
+        if (group == null)
+            GROUP.remove();
+        else
+            GROUP.set(group);
+    }
+
+    static String currentGroup() {
+        return GROUP.get();
+    }
+
+    /** The most transfers this engine runs against one host at a time. */
+    public int getPerHostLimit() {
+        return perHostLimit;
+    }
+
+    FetchPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Downloads {@code url} into {@code target}, replacing any existing file.
+     * The body is streamed straight into a {@link FileChannel}.
+     */
+    public void download(String url, File target) throws IOException {
+        download(url, target, null, -1);
+    }
+
+    /**
+     * Downloads {@code url} into {@code target}, hashing the bytes as they stream
+     * in. The body is written to a temporary file next to the target and only
+     * renamed into place once the SHA-1 (and size, if known) match.
+     *
+     * Failed attempts are retried with backoff; if {@code url} belongs to a
+     * {@link MirrorSet} each retry moves on to the next mirror, and mirrors that
+     * answered with a client error (e.g. 404) are not asked again.
+     *
+     * @param sha1 expected hex SHA-1, or null to skip the hash check
+     * @param size expected size in bytes, or a negative value if unknown
+     */
+    public void download(String url, File target, String sha1, long size) throws IOException {
+        MirrorSet mirrors = MirrorSet.forUrl(url);
+        download(mirrors != null ? mirrors.candidates(url) : List.of(url), target, sha1, size);
+    }
+
+    /**
+     * Like {@link #download(String, File, String, long)} but only ever asks
+     * {@code url} itself, for callers such as {@link MavenResolver} that pick
+     * the repository on their own.
+     */
+    void downloadWithoutMirrors(String url, File target, String sha1, long size) throws IOException {
+        download(List.of(url), target, sha1, size);
+    }
+
+    private void download(List<String> sources, File target, String sha1, long size) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+
+        int attempts = Math.max(policy.getMaxAttempts(), sources.size());
+        Set<String> missing = new HashSet<>();
+        Set<String> tried = new HashSet<>();
+        IOException lastError = null;
+        int retries = 0;
+
+        for (int attempt = 1; attempt <= attempts && missing.size() < sources.size(); attempt++) {
+            String source = nextSource(sources, missing, attempt);
+            // Failing over to another mirror is immediate; going back to one already tried backs off
+            if (!tried.add(source))
+                policy.backoff(++retries);
+
+            Path temp = Files.createTempFile(parent.toPath(), target.getName(), ".tmp");
+            try {
+                String hedge = policy.shouldHedge(size) ? nextSource(sources, missing, attempt + 1) : null;
+                String actual = transferTo(source, hedge, temp);
+                long actualSize = Files.size(temp);
+
+                if (size >= 0 && actualSize != size) {
+                    lastError = new IOException("Size mismatch for " + source + ": expected " + size + ", got "
+                            + actualSize);
+                } else if (sha1 != null && !sha1.isEmpty() && !sha1.equalsIgnoreCase(actual)) {
+                    lastError = new IOException("SHA-1 mismatch for " + source + ": expected " + sha1 + ", got "
+                            + actual);
+                } else {
+                    commit(temp, target.toPath());
+                    return;
+                }
+            } catch (HttpStatusException e) {
+                lastError = e;
+                if (!e.isRetryable())
+                    missing.add(source);
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted())
+                    throw e;
+                if (e instanceof FetchPolicy.StallException)
+                    MirrorSet.recordFailure(source);
+                lastError = e;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            System.err.println(describe(lastError, source) + " (attempt " + attempt + "/" + attempts + ")");
+        }
+        throw lastError;
+    }
+
+    private static String describe(IOException e, String url) {
+        // Connect failures carry no message of their own
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName() + " for " + url;
+    }
+
+    /**
+     * Picks the source for {@code attempt}, cycling through the candidates and
+     * skipping those known not to have the file.
+     */
+    private static String nextSource(List<String> sources, Set<String> missing, int attempt) {
+        for (int i = 0; i < sources.size(); i++) {
+            String source = sources.get((attempt - 1 + i) % sources.size());
+            if (!missing.contains(source))
+                return source;
+        }
+        return sources.get((attempt - 1) % sources.size());
+    }
+
+    private String transferTo(String url, String hedgeUrl, Path temp) throws IOException {
+        URI uri = URI.create(url);
+        MessageDigest digest = Hashing.newSha1();
+        BandwidthLimiter limiter = BandwidthLimiter.shared();
+        String group = currentGroup();
+        Semaphore permit = acquire(uri);
+        limiter.begin(group);
+        try {
+            HttpResponse<InputStream> response = hedgeUrl != null ? openHedged(uri, URI.create(hedgeUrl))
+                    : open(uri);
+            try (InputStream in = response.body();
+                    ReadableByteChannel src = limiter.throttle(
+                            new DigestChannel(policy.guard(in, Channels.newChannel(in), url), digest), group);
+                    FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                transfer(src, out);
+            }
+        } finally {
+            limiter.end(group);
+            permit.release();
+        }
+        return Hashing.toHex(digest.digest());
+    }
+
+    static void commit(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Downloads a large artifact through a persistent {@code .part} file that
+     * survives interruptions and is resumed with HTTP Range requests. See
+     * {@link ResumableDownload}.
+     */
+    public void downloadResumable(String url, File target, String sha1, long size) throws IOException {
+        new ResumableDownload(this, url, target, sha1, size, new String[0]).run();
+    }
+
+    /**
+     * Like {@link #downloadResumable(String, File, String, long)}, sending the
+     * given header name/value pairs with every request. A {@code User-Agent}
+     * among them replaces the launcher's own.
+     */
+    public void downloadResumable(String url, File target, String sha1, long size, String... headers)
+            throws IOException {
+        new ResumableDownload(this, url, target, sha1, size, headers).run();
+    }
+
+    /**
+     * Downloads {@code url} and returns the body decoded as UTF-8.
+     */
+    public String downloadString(String url) throws IOException {
+        URI uri = URI.create(url);
+        for (int attempt = 1;; attempt++) {
+            Semaphore permit = acquire(uri);
+            try (InputStream in = open(uri).body();
+                    InputStream guarded = Channels.newInputStream(policy.guard(in, Channels.newChannel(in), url))) {
+                return new String(guarded.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                boolean retryable = !(e instanceof HttpStatusException) || ((HttpStatusException) e).isRetryable();
+                if (!retryable || attempt >= policy.getMaxAttempts() || Thread.currentThread().isInterrupted())
+                    throw e;
+                System.err.println(e.getMessage() + " (attempt " + attempt + "/" + policy.getMaxAttempts() + ")");
+            } finally {
+                permit.release();
+            }
+            policy.backoff(attempt);
+        }
+    }
+
+    /**
+     * Sends a GET for {@code uri} with the given extra header name/value pairs and
+     * returns the response once it is known to be 2xx. The caller owns the body.
+     */
+    HttpResponse<InputStream> open(URI uri, String... headers) throws IOException {
+        return exchange(uri, "GET", headers);
+    }
+
+    HttpResponse<InputStream> head(URI uri, String... headers) throws IOException {
+        HttpResponse<InputStream> response = exchange(uri, "HEAD", headers);
+        response.body().close();
+        return response;
+    }
+
+    private HttpResponse<InputStream> exchange(URI uri, String method, String... headers) throws IOException {
+        HttpRequest request = request(uri, method, headers);
+        long start = System.nanoTime();
+        try {
+            return checked(uri, client.send(request, HttpResponse.BodyHandlers.ofInputStream()), start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading " + uri, e);
+        } catch (HttpStatusException e) {
+            throw e;
+        } catch (IOException e) {
+            MirrorSet.recordFailure(uri.toString());
+            throw e;
+        }
+    }
+
+    /**
+     * GETs {@code primary}; if no response has arrived after the policy's hedge
+     * delay, also GETs {@code backup} (possibly the same URL) and returns
+     * whichever answers first with a 2xx, cancelling the other. The hedge runs
+     * outside the per-host limit since it only replaces a request that is
+     * already stuck.
+     */
+    HttpResponse<InputStream> openHedged(URI primary, URI backup) throws IOException {
+        CompletableFuture<HttpResponse<InputStream>> winner = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture<HttpResponse<InputStream>> first = race(primary, winner, started, failures);
+        CompletableFuture<HttpResponse<InputStream>> second = null;
+        try {
+            try {
+                return winner.get(policy.getHedgeDelay().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Slow to answer: race a second request against it
+            }
+            second = race(backup, winner, started, failures);
+            return winner.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Request failed for " + primary, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading " + primary, e);
+        } finally {
+            // No-ops on the winner; aborts the exchange still in flight
+            first.cancel(true);
+            if (second != null)
+                second.cancel(true);
+        }
+    }
+
+    /**
+     * Starts a GET that completes {@code winner} with its response unless
+     * another request got there first, in which case the body is closed. The
+     * winner fails once every request started so far has failed.
+     */
+    private CompletableFuture<HttpResponse<InputStream>> race(URI uri,
+            CompletableFuture<HttpResponse<InputStream>> winner, AtomicInteger started, AtomicInteger failures) {
+        started.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<InputStream>> future = client.sendAsync(request(uri, "GET"),
+                HttpResponse.BodyHandlers.ofInputStream());
+        future.whenComplete((response, error) -> {
+            IOException failure;
+            if (response != null) {
+                try {
+                    if (!winner.complete(checked(uri, response, start)))
+                        closeQuietly(response.body());
+                    return;
+                } catch (HttpStatusException e) {
+                    failure = e;
+                }
+            } else {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (!(cause instanceof CancellationException))
+                    MirrorSet.recordFailure(uri.toString());
+                failure = cause instanceof IOException ? (IOException) cause
+                        : new IOException("Request failed for " + uri, cause);
+            }
+            if (failures.incrementAndGet() >= started.get())
+                winner.completeExceptionally(failure);
+        });
+        return future;
+    }
+
+    private HttpRequest request(URI uri, String method, String... headers) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri);
+        if ("http".equalsIgnoreCase(uri.getScheme())) {
+            // Skip the h2c upgrade dance on plain HTTP; HTTP/2 is negotiated via ALPN on HTTPS.
+            builder.version(HttpClient.Version.HTTP_1_1);
+        }
+        builder.setHeader("User-Agent", USER_AGENT);
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            builder.setHeader(headers[i], headers[i + 1]);
+        }
+        return builder
+                .timeout(policy.getResponseTimeout())
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    /**
+     * Passes 2xx responses through and records the mirror latency; anything
+     * else is closed and turned into an {@link HttpStatusException}. Only
+     * server errors, timeouts and throttling count against the mirror.
+     */
+    private static HttpResponse<InputStream> checked(URI uri, HttpResponse<InputStream> response, long start)
+            throws HttpStatusException {
+        if (response.statusCode() / 100 != 2) {
+            closeQuietly(response.body());
+            HttpStatusException error = new HttpStatusException(uri, response.statusCode());
+            if (error.isRetryable())
+                MirrorSet.recordFailure(uri.toString());
+            throw error;
+        }
+        MirrorSet.recordLatency(uri.toString(), System.nanoTime() - start);
+        return response;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Nothing left to read from it anyway
+        }
+    }
+
+    private static void transfer(ReadableByteChannel src, FileChannel out) throws IOException {
+        // The source is a blocking channel, so a zero-length transfer means end of stream.
+        long position = 0;
+        long transferred;
+        while ((transferred = out.transferFrom(src, position, 1L << 20)) > 0) {
+            position += transferred;
+        }
+    }
+
+    Semaphore acquire(URI uri) throws IOException {
+        Semaphore permit = permits(uri.getHost());
+        try {
+            permit.acquire();
+            return permit;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for " + uri.getHost(), e);
+        }
+    }
+
+    private Semaphore permits(String host) {
+        return hostPermits.computeIfAbsent(host == null ? "" : host, h -> new Semaphore(perHostLimit));
+    }
+
+    /**
+     * A non-2xx response. Client errors other than 408 and 429 mean the server
+     * does not have the resource and asking again will not help.
+     */
+    static class HttpStatusException extends IOException {
+        private final int statusCode;
+
+        HttpStatusException(URI uri, int statusCode) {
+            super("HTTP " + statusCode + " for " + uri);
+            this.statusCode = statusCode;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+
+        boolean isRetryable() {
+            return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+        }
+    }
+
+    /**
+     * Feeds every byte read through the wrapped channel into a digest, so the
+     * hash is ready as soon as the transfer finishes.
+     */
+    private static class DigestChannel implements ReadableByteChannel {
+        private final ReadableByteChannel delegate;
+        private final MessageDigest digest;
+
+        DigestChannel(ReadableByteChannel delegate, MessageDigest digest) {
+            this.delegate = delegate;
+            this.digest = digest;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int start = dst.position();
+            int read = delegate.read(dst);
+            if (read > 0) {
+                ByteBuffer view = dst.duplicate();
+                view.flip().position(start);
+                digest.update(view);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.launcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs a batch of transfers, one thread per transfer (virtual where available),
+ * gated by a concurrency limit that tunes itself from observed throughput and
+ * error rate. Larger jobs start first so a few big objects do not end up as
+ * the tail of the batch.
+ */
+public class DownloadScheduler {
+    private static final int DEFAULT_INITIAL_LIMIT = 8;
+    private static final int DEFAULT_MIN_LIMIT = 2;
+
+    /**
+     * A single unit of work. Returns the number of bytes actually transferred
+     * (0 when the file was already valid), which feeds the throughput estimate.
+     */
+    public interface Transfer {
+        long run() throws IOException;
+    }
+
+    private final String label;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final List<Job> jobs = new ArrayList<>();
+
+    /**
+     * A scheduler for transfers from a single host. The limit never grows past
+     * the shared engine's per-host limit, since extra permits would only park
+     * threads on the host's semaphore.
+     */
+    public DownloadScheduler(String label) {
+        this(label, DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DownloadEngine.shared().getPerHostLimit());
+    }
+
+    public DownloadScheduler(String label, int initialLimit, int minLimit, int maxLimit) {
+        this.label = label;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public void add(String name, long size, Transfer transfer) {
+        jobs.add(new Job(name, size, transfer));
+    }
+
+    /**
+     * Runs every queued job and blocks until all of them have finished.
+     * Failures are collected into the result rather than thrown.
+     */
+    public Result run() throws InterruptedException {
+        List<Job> ordered = new ArrayList<>(jobs);
+        jobs.clear();
+        ordered.sort(Comparator.comparingLong((Job j) -> j.size).reversed());
+
+        AdaptiveLimit limit = new AdaptiveLimit(initialLimit, minLimit, maxLimit);
+        CountDownLatch done = new CountDownLatch(ordered.size());
+        AtomicInteger completed = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+
+        ExecutorService executor = LauncherThreads.newPerTaskExecutor(label);
+        try {
+            for (Job job : ordered) {
+                // Acquire before starting the thread so jobs begin strictly in order
+                limit.acquire();
+                executor.execute(() -> {
+                    DownloadEngine.setCurrentGroup(label);
+                    try {
+                        long transferred = job.transfer.run();
+                        bytes.addAndGet(transferred);
+                        completed.incrementAndGet();
+                        limit.record(transferred, false);
+                    } catch (Exception e) {
+                        failures.add(new Failure(job.name, e));
+                        limit.record(0, true);
+                    } finally {
+                        DownloadEngine.setCurrentGroup(null);
+                        limit.release();
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } finally {
+            executor.shutdown();
+        }
+
+        return new Result(completed.get(), failures, bytes.get(), System.nanoTime() - start, limit.current());
+    }
+
+    private static class Job {
+        final String name;
+        final long size;
+        final Transfer transfer;
+
+        Job(String name, long size, Transfer transfer) {
+            this.name = name;
+            this.size = size;
+            this.transfer = transfer;
+        }
+    }
+
+    public static class Failure {
+        private final String name;
+        private final Exception error;
+
+        Failure(String name, Exception error) {
+            this.name = name;
+            this.error = error;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+    }
+
+    public static class Result {
+        private final int completed;
+        private final List<Failure> failures;
+        private final long bytes;
+        private final long elapsedNanos;
+        private final int finalLimit;
+
+        Result(int completed, List<Failure> failures, long bytes, long elapsedNanos, int finalLimit) {
+            this.completed = completed;
+            this.failures = new ArrayList<>(failures);
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.finalLimit = finalLimit;
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        public List<Failure> getFailures() {
+            return failures;
+        }
+
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public int getFinalLimit() {
+            return finalLimit;
+        }
+
+        /**
+         * Throws an IOException summarising the failures, with the first one as
+         * the cause, if any job failed.
+         */
+        public void throwIfFailed(String what) throws IOException {
+            if (failures.isEmpty())
+                return;
+            Failure first = failures.get(0);
+            IOException e = new IOException(failures.size() + " " + what + " failed, first: " + first.name + " ("
+                    + first.error.getMessage() + ")", first.error);
+            for (int i = 1; i < Math.min(failures.size(), 10); i++) {
+                e.addSuppressed(failures.get(i).error);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Concurrency limit tuned once per sampling window: halve on a high error
+     * rate, keep growing while throughput improves, back off by one when it
+     * drops.
+     */
+    static class AdaptiveLimit {
+        static final long WINDOW_NANOS = 500_000_000L;
+
+        private final ResizableSemaphore permits;
+        private final LongSupplier clock;
+        private final int min;
+        private final int max;
+        private int limit;
+
+        private long windowStart;
+        private long windowBytes;
+        private int windowJobs;
+        private int windowErrors;
+        private double lastThroughput;
+
+        AdaptiveLimit(int initial, int min, int max) {
+            this(initial, min, max, System::nanoTime);
+        }
+
+        AdaptiveLimit(int initial, int min, int max, LongSupplier clock) {
+            this.clock = clock;
+            this.windowStart = clock.getAsLong();
+            this.min = min;
+            this.max = max;
+            this.limit = Math.max(min, Math.min(max, initial));
+            this.permits = new ResizableSemaphore(limit);
+        }
+
+        void acquire() throws InterruptedException {
+            permits.acquire();
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        synchronized int current() {
+            return limit;
+        }
+
+        synchronized void record(long bytes, boolean error) {
+            windowBytes += bytes;
+            windowJobs++;
+            if (error)
+                windowErrors++;
+
+            long now = clock.getAsLong();
+            long elapsed = now - windowStart;
+            if (elapsed < WINDOW_NANOS)
+                return;
+
+            double throughput = windowBytes * 1e9 / elapsed;
+            double errorRate = (double) windowErrors / windowJobs;
+
+            if (errorRate > 0.1) {
+                resize(limit / 2);
+            } else if (throughput > lastThroughput * 1.05) {
+                resize(limit + 2);
+            } else if (throughput < lastThroughput * 0.9) {
+                resize(limit - 1);
+            }
+
+            lastThroughput = throughput;
+            windowStart = now;
+            windowBytes = 0;
+            windowJobs = 0;
+            windowErrors = 0;
+        }
+
+        private void resize(int target) {
+            target = Math.max(min, Math.min(max, target));
+            if (target > limit) {
+                permits.release(target - limit);
+            } else if (target < limit) {
+                permits.shrink(limit - target);
+            }
+            limit = target;
+        }
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        void shrink(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+}
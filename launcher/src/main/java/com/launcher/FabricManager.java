@@ -2,10 +2,6 @@ package com.launcher;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 import com.launcher.service.VersionInstaller;
 
 public class FabricManager implements VersionInstaller {
@@ -37,8 +33,6 @@ public class FabricManager implements VersionInstaller {
     }
 
     private void downloadFile(String urlStr, File target) throws IOException {
-        try (InputStream in = new URL(urlStr).openStream()) {
-            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        DownloadEngine.shared().download(urlStr, target);
     }
 }
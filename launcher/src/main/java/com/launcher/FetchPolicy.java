@@ -0,0 +1,223 @@
+package com.launcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timeouts, retry and hedging rules for {@link DownloadEngine}.
+ *
+ * <ul>
+ * <li>Connecting and waiting for response headers are bounded by
+ * {@link #getConnectTimeout()} and {@link #getResponseTimeout()}.</li>
+ * <li>Once the body is streaming, a watchdog aborts any transfer that moves
+ * fewer than {@code minBytesPerSecond} over a {@code stallWindow}, so a dead
+ * CDN connection fails in seconds instead of blocking a download slot.</li>
+ * <li>Failed attempts are retried after an exponential backoff with
+ * jitter.</li>
+ * <li>Small objects may be hedged: if the headers have not arrived after
+ * {@link #getHedgeDelay()}, a second request races the first.</li>
+ * </ul>
+ *
+ * Every value can be overridden with a {@code launcher.fetch.*} system
+ * property, see {@link #fromSystemProperties()}.
+ */
+public class FetchPolicy {
+    private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1,
+            LauncherThreads.daemonFactory("fetch-watchdog"));
+    static {
+        // Guards are short-lived; drop their tasks from the queue as soon as they close
+        WATCHDOG.setRemoveOnCancelPolicy(true);
+    }
+    private static final long WATCHDOG_PERIOD_MILLIS = 500;
+
+    private final Duration connectTimeout;
+    private final Duration responseTimeout;
+    private final Duration stallWindow;
+    private final long minBytesPerSecond;
+    private final int maxAttempts;
+    private final Duration backoffBase;
+    private final Duration backoffMax;
+    private final Duration hedgeDelay;
+    private final long hedgeMaxSize;
+
+    public FetchPolicy(Duration connectTimeout, Duration responseTimeout, Duration stallWindow,
+            long minBytesPerSecond, int maxAttempts, Duration backoffBase, Duration backoffMax, Duration hedgeDelay,
+            long hedgeMaxSize) {
+        this.connectTimeout = connectTimeout;
+        this.responseTimeout = responseTimeout;
+        this.stallWindow = stallWindow;
+        this.minBytesPerSecond = minBytesPerSecond;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBase = backoffBase;
+        this.backoffMax = backoffMax;
+        this.hedgeDelay = hedgeDelay;
+        this.hedgeMaxSize = hedgeMaxSize;
+    }
+
+    /**
+     * Builds the policy from {@code launcher.fetch.*} system properties:
+     * {@code connectTimeoutMs} (10000), {@code responseTimeoutMs} (30000),
+     * {@code stallWindowMs} (15000), {@code minKiBps} (1, 0 disables stall
+     * detection), {@code attempts} (4), {@code backoffMs} (500),
+     * {@code backoffMaxMs} (8000), {@code hedgeDelayMs} (2000, 0 disables
+     * hedging) and {@code hedgeMaxKiB} (1024).
+     */
+    public static FetchPolicy fromSystemProperties() {
+        return new FetchPolicy(
+                Duration.ofMillis(Long.getLong("launcher.fetch.connectTimeoutMs", 10_000L)),
+                Duration.ofMillis(Long.getLong("launcher.fetch.responseTimeoutMs", 30_000L)),
+                Duration.ofMillis(Long.getLong("launcher.fetch.stallWindowMs", 15_000L)),
+                Long.getLong("launcher.fetch.minKiBps", 1L) * 1024,
+                Integer.getInteger("launcher.fetch.attempts", 4),
+                Duration.ofMillis(Long.getLong("launcher.fetch.backoffMs", 500L)),
+                Duration.ofMillis(Long.getLong("launcher.fetch.backoffMaxMs", 8_000L)),
+                Duration.ofMillis(Long.getLong("launcher.fetch.hedgeDelayMs", 2_000L)),
+                Long.getLong("launcher.fetch.hedgeMaxKiB", 1024L) * 1024);
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getHedgeDelay() {
+        return hedgeDelay;
+    }
+
+    /**
+     * True when an object of {@code size} bytes should get a hedged request.
+     * Objects of unknown size are never hedged.
+     */
+    public boolean shouldHedge(long size) {
+        return !hedgeDelay.isZero() && size >= 0 && size <= hedgeMaxSize;
+    }
+
+    /**
+     * Sleeps before retry number {@code retry} (1 for the first retry): a random
+     * delay in the upper half of {@code base * 2^(retry-1)}, capped at the
+     * maximum backoff.
+     */
+    public void backoff(int retry) throws InterruptedIOException {
+        long cap = backoffMax.toMillis();
+        long delay = Math.min(cap, backoffBase.toMillis() << Math.min(retry - 1, 20));
+        long jittered = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        try {
+            Thread.sleep(jittered);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    /**
+     * Wraps the channel reading {@code in} so the transfer is aborted (by closing
+     * {@code in}) if it falls below the minimum throughput. Reads then fail with
+     * a {@link StallException}. The watch is a watchdog task that lives until
+     * the returned channel is closed or the transfer stalls.
+     */
+    public ReadableByteChannel guard(InputStream in, ReadableByteChannel channel, String what) {
+        if (minBytesPerSecond <= 0)
+            return channel;
+        return new Guard(in, channel, what);
+    }
+
+    /** Transfers currently watched for stalls, across all policies. */
+    static int watchedTransfers() {
+        return WATCHDOG.getQueue().size();
+    }
+
+    /**
+     * Thrown when a transfer is aborted for falling below the minimum
+     * throughput.
+     */
+    public static class StallException extends IOException {
+        public StallException(String message) {
+            super(message);
+        }
+    }
+
+    private class Guard implements ReadableByteChannel {
+        private final InputStream in;
+        private final ReadableByteChannel delegate;
+        private final String what;
+        private final ScheduledFuture<?> watch;
+
+        private volatile long windowStart = System.nanoTime();
+        private volatile long windowBytes;
+        private volatile boolean stalled;
+
+        Guard(InputStream in, ReadableByteChannel delegate, String what) {
+            this.in = in;
+            this.delegate = delegate;
+            this.what = what;
+            this.watch = WATCHDOG.scheduleWithFixedDelay(() -> check(System.nanoTime()), WATCHDOG_PERIOD_MILLIS,
+                    WATCHDOG_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int read;
+            try {
+                read = delegate.read(dst);
+            } catch (IOException e) {
+                if (stalled)
+                    throw stallException();
+                throw e;
+            }
+            if (stalled)
+                throw stallException();
+            if (read > 0)
+                windowBytes += read;
+            return read;
+        }
+
+        void check(long now) {
+            long elapsed = now - windowStart;
+            if (elapsed < stallWindow.toNanos())
+                return;
+            if (windowBytes * 1e9 / elapsed < minBytesPerSecond) {
+                stalled = true;
+                watch.cancel(false);
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // The reader sees the stall either way
+                }
+                return;
+            }
+            windowStart = now;
+            windowBytes = 0;
+        }
+
+        private StallException stallException() {
+            return new StallException("Transfer stalled (under " + minBytesPerSecond / 1024 + " KiB/s for "
+                    + stallWindow.toSeconds() + "s): " + what);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            watch.cancel(false);
+            delegate.close();
+        }
+    }
+}
@@ -2,14 +2,14 @@ package com.launcher;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 
 import com.launcher.service.VersionInstaller;
 
 public class ForgeManager implements VersionInstaller {
+    private static final String BROWSER_USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+            + "(KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+
     private final File versionsDir;
     private final File librariesDir;
 
@@ -80,12 +80,7 @@ public class ForgeManager implements VersionInstaller {
 
     private void downloadFile(String urlStr, File target) throws IOException {
         System.out.println("Downloading: " + urlStr);
-        java.net.HttpURLConnection conn = (java.net.HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestProperty("User-Agent",
-                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36");
-
-        try (InputStream in = conn.getInputStream()) {
-            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        // The Forge maven has turned away non-browser clients before
+        DownloadEngine.shared().downloadResumable(urlStr, target, null, -1, "User-Agent", BROWSER_USER_AGENT);
     }
 }
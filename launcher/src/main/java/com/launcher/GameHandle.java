@@ -0,0 +1,100 @@
+package com.launcher;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A running game started by {@link GameLauncher#start(LaunchPlan)}. The
+ * output pipeline, telemetry and class data recording are wound down on a
+ * background thread when the process exits; {@link #onExit()} completes after
+ * that with the exit code.
+ */
+public class GameHandle {
+    private final Process process;
+    private final String versionId;
+    private final File gameDir;
+    private final LogEventParser events;
+    private final ProcessTelemetry telemetry;
+    private final CompletableFuture<Integer> exit = new CompletableFuture<>();
+    private volatile File profileReport;
+
+    GameHandle(Process process, String versionId, File gameDir, LogEventParser events,
+            ProcessTelemetry telemetry) {
+        this.process = process;
+        this.versionId = versionId;
+        this.gameDir = gameDir;
+        this.events = events;
+        this.telemetry = telemetry;
+    }
+
+    public long getPid() {
+        return process.pid();
+    }
+
+    public String getVersionId() {
+        return versionId;
+    }
+
+    public File getGameDirectory() {
+        return gameDir;
+    }
+
+    public LogEventParser getEvents() {
+        return events;
+    }
+
+    public ProcessTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * The performance summary of a profiled session. It is written after
+     * {@link #onExit()} completed, once the recording has been read; null
+     * until then, and if the session was not profiled or the recording could
+     * not be read.
+     */
+    public File getProfileReport() {
+        return profileReport;
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Completes with the exit code once the game has exited and its output
+     * was fully written.
+     */
+    public CompletableFuture<Integer> onExit() {
+        return exit;
+    }
+
+    /**
+     * Blocks until {@link #onExit()} completes and returns the exit code.
+     */
+    public int waitFor() throws InterruptedException {
+        try {
+            return exit.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Game shutdown handling failed", e.getCause());
+        }
+    }
+
+    /** Asks the game to terminate. */
+    public void stop() {
+        process.destroy();
+    }
+
+    void profiled(File report) {
+        this.profileReport = report;
+    }
+
+    void exited(int exitCode) {
+        exit.complete(exitCode);
+    }
+
+    void failed(Throwable error) {
+        exit.completeExceptionally(error);
+    }
+}
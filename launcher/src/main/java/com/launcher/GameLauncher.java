@@ -2,52 +2,95 @@ package com.launcher;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import com.google.gson.internal.LinkedTreeMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import com.launcher.auth.OfflineAuthenticator;
 import com.launcher.model.Version;
-import com.launcher.model.Library;
 
 public class GameLauncher {
+    /**
+     * Features the launcher provides to argument rules: it always passes a
+     * window size, never runs the demo and does not offer quick play.
+     */
+    private static final Set<String> FEATURES = Set.of("has_custom_resolution");
+
+    /** Compiled arguments per rule environment and version chain hash. */
+    private static final Map<String, CompiledArguments> COMPILED = new ConcurrentHashMap<>();
+
+    public static final String DEFAULT_INSTANCE = "default";
+
+    /** Running games by canonical game directory. */
+    private static final Map<File, GameHandle> RUNNING = new HashMap<>();
+
+    private static final DateTimeFormatter SESSION_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
     private final File workDir;
+    private final List<GameOutput.Consumer> outputConsumers = new ArrayList<>();
+    private final List<ProcessTelemetry.Listener> telemetryListeners = new ArrayList<>();
     private final String osName;
     private final String osArch;
+    private final RuleEngine rules;
+    private boolean profileSession = SessionProfiler.isEnabled();
 
     public GameLauncher(File workDir) {
         this.workDir = workDir;
-        String os = System.getProperty("os.name").toLowerCase();
-        if (os.contains("win"))
-            this.osName = "windows";
-        else if (os.contains("mac"))
-            this.osName = "osx";
-        else
-            this.osName = "linux";
-
+        this.osName = RuleEngine.currentOsName();
         this.osArch = System.getProperty("os.arch");
+        this.rules = RuleEngine.forCurrentSystem(FEATURES);
     }
 
     public void launch(Version version, OfflineAuthenticator.Session session, int ramMB)
             throws IOException, InterruptedException {
+        launch(plan(version, session, ramMB, JvmTuning.Profile.DEFAULT));
+    }
+
+    /**
+     * Builds the command line for a prepared version, extracting natives if
+     * needed. The result can be stored and launched again with
+     * {@link #launch(LaunchPlan)}.
+     */
+    public LaunchPlan plan(Version version, OfflineAuthenticator.Session session, int ramMB,
+            JvmTuning.Profile tuning) throws IOException {
+        return plan(version, session, ramMB, tuning, workDir);
+    }
+
+    /**
+     * Like {@link #plan(Version, OfflineAuthenticator.Session, int, JvmTuning.Profile)}
+     * with saves, mods, options and logs in {@code gameDir}.
+     */
+    public LaunchPlan plan(Version version, OfflineAuthenticator.Session session, int ramMB,
+            JvmTuning.Profile tuning, File gameDir) throws IOException {
         List<String> command = new ArrayList<>();
 
         // Java executable
         String javaPath = System.getProperty("java.home") + "/bin/java";
         command.add(javaPath);
 
+        LibraryPlan plan = LibraryPlan.load(workDir, version, osName, osArch);
+
         // Prepare variables for substitution
         Map<String, String> variables = new HashMap<>();
-        variables.put("natives_directory", new File(workDir, "natives").getAbsolutePath()); // Simplified
+        File nativesDir = new NativesManager(workDir).prepare(version.getId(), plan);
+        variables.put("natives_directory", nativesDir.getAbsolutePath());
         variables.put("launcher_name", "SimpleLauncher");
         variables.put("launcher_version", "1.0");
         variables.put("auth_player_name", session.username);
         variables.put("version_name", version.getId());
-        variables.put("game_directory", workDir.getAbsolutePath());
+        variables.put("game_directory", gameDir.getAbsolutePath());
         variables.put("library_directory", new File(workDir, "libraries").getAbsolutePath());
         variables.put("classpath_separator", System.getProperty("path.separator"));
         variables.put("assets_root", new File(workDir, "assets").getAbsolutePath());
+        // Pre-1.7 versions read assets by name from the virtual/resources layout
+        variables.put("game_assets", AssetMaterializer
+                .resolveGameAssets(workDir, version.getAssetIndex() != null ? version.getAssetIndex().getId() : "legacy")
+                .getAbsolutePath());
         variables.put("resolution_width", "854");
         variables.put("resolution_height", "480");
         variables.put("assets_index_name",
@@ -60,240 +103,263 @@ public class GameLauncher {
         // Quick Play & Auth Placeholders (Fixes 'Failed to Quick Play' errors)
         variables.put("clientid", "0");
         variables.put("auth_xuid", "0000000000000000");
-        variables.put("quickPlayPath", new File(workDir, "quickPlay").getAbsolutePath());
+        variables.put("quickPlayPath", new File(gameDir, "quickPlay").getAbsolutePath());
         variables.put("quickPlaySingleplayer", "");
         variables.put("quickPlayMultiplayer", "");
         variables.put("quickPlayRealms", "");
 
-        variables.put("classpath", buildClasspath(version));
+        variables.put("classpath", buildClasspath(version, plan));
 
         // Standard JVM Arguments (RAM, OS specifics) - Applied to ALL versions
         command.add("-Xmx" + ramMB + "M"); // Dynamic RAM
+        command.addAll(JvmTuning.flags(tuning, ramMB, javaPath));
 
         if (this.osName.equals("osx")) {
             command.add("-XstartOnFirstThread");
             command.add("-Dfml.earlyprogresswindow=false");
         }
 
+        CompiledArguments arguments = compiledArguments(version);
+        Set<String> unknown = new TreeSet<>();
+
         // Modern Arguments (1.13+)
-        if (version.getArguments() != null) {
+        if (arguments.jvm != null) {
             // JVM Arguments from version.json
-            if (version.getArguments().getJvm() != null) {
-                for (Object arg : version.getArguments().getJvm()) {
-                    processArgument(command, arg, variables);
-                }
-            } else {
-                // Default JVM args if missing in modern version
-                command.add("-Djava.library.path=" + variables.get("natives_directory"));
-                command.add("-cp");
-                command.add(variables.get("classpath"));
-            }
-
-            // Add Main Class
-            command.add(version.getMainClass());
-
-            // Game Arguments
-            if (version.getArguments().getGame() != null) {
-                for (Object arg : version.getArguments().getGame()) {
-                    processArgument(command, arg, variables);
-                }
-            }
-        }
-        // Legacy Arguments (<1.13)
-        else {
+            ArgumentTemplate.fillAll(arguments.jvm, variables, command, unknown);
+        } else {
+            // Default JVM args if missing in modern version, and legacy (<1.13)
             command.add("-Djava.library.path=" + variables.get("natives_directory"));
             command.add("-cp");
             command.add(variables.get("classpath"));
+        }
 
-            command.add(version.getMainClass());
+        // Add Main Class
+        int mainClassIndex = command.size();
+        command.add(version.getMainClass());
 
-            // Parse minecraftArguments string
-            if (version.getMinecraftArguments() != null) {
-                String[] args = version.getMinecraftArguments().split(" ");
-                for (String arg : args) {
-                    command.add(replaceVariables(arg, variables));
-                }
-            }
+        // Game Arguments (modern list or legacy minecraftArguments string)
+        ArgumentTemplate.fillAll(arguments.game, variables, command, unknown);
+
+        if (!unknown.isEmpty())
+            System.err.println("Unknown argument placeholders for " + version.getId() + ": " + unknown);
+
+        // JVM options and classpath go to an argfile; the command line keeps the
+        // executable, main class and game arguments
+        File argFile = null;
+        if (ArgFile.isEnabled()) {
+            List<String> jvmArgs = command.subList(1, mainClassIndex);
+            argFile = ArgFile.write(workDir, jvmArgs);
+            jvmArgs.clear();
+            command.add(1, "@" + argFile.getAbsolutePath());
         }
 
-        // Execute
-        System.out.println("Executing command: " + String.join(" ", command));
+        return new LaunchPlan(version.getId(), command, variables.get("classpath"), gameDir, nativesDir, argFile,
+                version.getAssetIndex() != null ? version.getAssetIndex().getId() : null);
+    }
 
-        ProcessBuilder pb = new ProcessBuilder(command);
-        pb.directory(workDir);
-        pb.inheritIO();
-        Process process = pb.start();
-        process.waitFor();
+    /**
+     * Records games started from now on with Java Flight Recorder and prints
+     * a performance summary when they exit. See {@link SessionProfiler}.
+     */
+    public void setProfileSession(boolean profileSession) {
+        this.profileSession = profileSession;
     }
 
-    private void processArgument(List<String> command, Object arg, Map<String, String> variables) {
-        if (arg instanceof String) {
-            command.add(replaceVariables((String) arg, variables));
-        } else if (arg instanceof LinkedTreeMap) {
-            // { "rules": [...], "value": ["--foo", "bar"] } or "value": "--foo"
-            LinkedTreeMap<?, ?> map = (LinkedTreeMap<?, ?>) arg;
-
-            // To check rules here, we would need to deserialize them to Library.Rule
-            // objects
-            // However, arguments in 'arguments' field are generic objects.
-            // For now, implementing basic rule check locally for arguments
-            // or we could map map.get("rules") -> List<Rule>
-
-            // Note: Since 'arguments' in Version is now List<Object>, this remains tricky.
-            // But previous code called local checkRules(map.get("rules"))
-            // I will keep a simplified local checkRules for arguments OR adapt it.
-            // The user wants patterns. Duplicate logic is bad.
-            // But converting LinkedTreeMap to List<Rule> is annoying without Gson here.
-
-            // Let's use the helper we are about to inject, or honestly,
-            // KEEP checkRules BUT only for Arguments if strictly necessary?
-            // Actually, I can construct a temporary Library or Rule object.
-
-            if (checkRules(map.get("rules"))) {
-                Object value = map.get("value");
-                if (value instanceof String) {
-                    command.add(replaceVariables((String) value, variables));
-                } else if (value instanceof List) {
-                    for (Object v : (List<?>) value) {
-                        if (v instanceof String) {
-                            command.add(replaceVariables((String) v, variables));
-                        }
-                    }
-                }
-            }
-        }
+    /**
+     * Adds a consumer for the game's output. Without any, output goes to the
+     * launcher's stdout/stderr.
+     */
+    public void addOutputConsumer(GameOutput.Consumer consumer) {
+        outputConsumers.add(consumer);
     }
 
-    private boolean checkRules(Object rulesObj) {
-        if (rulesObj == null)
-            return true;
-        if (!(rulesObj instanceof List))
-            return true; // Should be a list
-
-        List<?> rules = (List<?>) rulesObj;
-        boolean allow = false;
-
-        for (Object ruleObj : rules) {
-            if (ruleObj instanceof LinkedTreeMap) {
-                LinkedTreeMap<?, ?> rule = (LinkedTreeMap<?, ?>) ruleObj;
-                String action = (String) rule.get("action");
-                boolean matches = true;
-
-                if (rule.containsKey("os")) {
-                    LinkedTreeMap<?, ?> osParams = (LinkedTreeMap<?, ?>) rule.get("os");
-                    if (osParams.containsKey("name")) {
-                        String name = (String) osParams.get("name");
-                        if (!name.equals(this.osName))
-                            matches = false;
-                    }
-                    if (osParams.containsKey("arch")) {
-                        String arch = (String) osParams.get("arch");
-                        if (this.osArch.equals("aarch64") && !arch.equals("arm64"))
-                            matches = false;
-                    }
-                }
+    /**
+     * Adds a listener for the running game's resource samples.
+     */
+    public void addTelemetryListener(ProcessTelemetry.Listener listener) {
+        telemetryListeners.add(listener);
+    }
 
-                if (rule.containsKey("features")) {
-                    LinkedTreeMap<?, ?> features = (LinkedTreeMap<?, ?>) rule.get("features");
-                    for (Object keyObj : features.keySet()) {
-                        String key = (String) keyObj;
-                        Boolean required = (Boolean) features.get(key); // Requirement (usually true)
-
-                        boolean hasFeature = false; // Default state
-                        if (key.equals("is_demo_user"))
-                            hasFeature = false;
-                        else if (key.equals("has_custom_resolution"))
-                            hasFeature = true;
-
-                        if (hasFeature != required) {
-                            matches = false;
-                        }
-                    }
-                }
+    /**
+     * Starts {@code plan} and waits for the game to exit.
+     */
+    public void launch(LaunchPlan plan) throws IOException, InterruptedException {
+        start(plan).waitFor();
+    }
+
+    /**
+     * Starts {@code plan} and returns once the process is running. Several
+     * games can run at once as long as each has its own game directory.
+     *
+     * @throws IOException if a game from this launcher is already running in
+     *                     the plan's game directory
+     */
+    public GameHandle start(LaunchPlan plan) throws IOException {
+        File gameDir = plan.getGameDirectory() != null ? plan.getGameDirectory() : workDir;
+        gameDir.mkdirs();
+        File key = gameDir.getCanonicalFile();
+
+        List<String> command = plan.getCommand();
+
+        // Class data archive options depend on what earlier runs recorded, so
+        // they are added here rather than stored in the plan
+        ClassDataCache.Run classData = null;
+        if (ClassDataCache.isEnabled() && plan.getClasspath() != null) {
+            classData = new ClassDataCache(workDir).begin(plan.getVersionId(), plan.getClasspath());
+            command = new ArrayList<>(command);
+            command.addAll(1, classData.getOptions());
+        }
+
+        System.out.println("Executing command: " + String.join(" ", command));
+
+        GameOutput output = new GameOutput();
+        LogEventParser events = new LogEventParser();
+        output.addConsumer(events);
+        String sessionName = SESSION_TIME.format(LocalDateTime.now()) + "-"
+                + plan.getVersionId().replaceAll("[^A-Za-z0-9._-]+", "_");
+        String session = "launcher-logs/" + sessionName;
+        GameOutput.FileSink sessionLog = new GameOutput.FileSink(new File(gameDir, session + ".log"));
+        output.addConsumer(sessionLog);
+        if (outputConsumers.isEmpty())
+            output.addConsumer(new GameOutput.ConsoleSink());
+        for (GameOutput.Consumer consumer : outputConsumers)
+            output.addConsumer(consumer);
+
+        SessionProfiler.Recording profile = null;
+        if (profileSession) {
+            profile = new SessionProfiler(gameDir).begin(sessionName);
+            command = new ArrayList<>(command);
+            command.addAll(1, profile.getOptions());
+        }
 
-                if (matches) {
-                    allow = "allow".equals(action);
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(gameDir);
+        long start = System.nanoTime();
+        Process process;
+        GameHandle handle;
+        synchronized (RUNNING) {
+            GameHandle running = RUNNING.get(key);
+            if (running != null && running.isAlive())
+                throw new IOException("Another game (" + running.getVersionId() + ") is already running in "
+                        + gameDir);
+            process = pb.start();
+            handle = new GameHandle(process, plan.getVersionId(), gameDir, events,
+                    new ProcessTelemetry(process.toHandle(), new File(gameDir, session + ".telemetry.csv")));
+            RUNNING.put(key, handle);
+        }
+        if (classData != null)
+            classData.watchStartup(events, start);
+        output.start(process);
+        for (ProcessTelemetry.Listener listener : telemetryListeners)
+            handle.getTelemetry().addListener(listener);
+        handle.getTelemetry().start();
+
+        ClassDataCache.Run recording = classData;
+        SessionProfiler.Recording profiling = profile;
+        Thread waiter = LauncherThreads.daemonFactory("game-exit").newThread(() -> {
+            try {
+                int exitCode;
+                try {
+                    exitCode = process.waitFor();
+                } finally {
+                    handle.getTelemetry().stop();
                 }
+                output.awaitDrained();
+                System.out.println("Game " + plan.getVersionId() + " exited with code " + exitCode + " (log: "
+                        + sessionLog.getFile() + ", " + events.getCount("WARN") + " warnings, "
+                        + events.getCount("ERROR") + " errors)");
+                if (recording != null)
+                    recording.finish(exitCode);
+                unregister(key, handle);
+                handle.exited(exitCode);
+            } catch (InterruptedException | RuntimeException e) {
+                unregister(key, handle);
+                handle.failed(e);
+                return;
             }
-        }
+            // Reading a long recording takes a while; the game is already reported as exited
+            if (profiling != null) {
+                try {
+                    handle.profiled(profiling.summarize(plan.getVersionId(), process.pid()));
+                } catch (RuntimeException e) {
+                    System.err.println("Could not summarize the session profile: " + e);
+                }
+            }
+        });
+        waiter.start();
+        return handle;
+    }
 
-        return allow;
+    private static void unregister(File key, GameHandle handle) {
+        synchronized (RUNNING) {
+            RUNNING.remove(key, handle);
+        }
     }
 
-    private String replaceVariables(String arg, Map<String, String> variables) {
-        for (Map.Entry<String, String> entry : variables.entrySet()) {
-            arg = arg.replace("${" + entry.getKey() + "}", entry.getValue());
+    /**
+     * Games started by this launcher that are still running.
+     */
+    public static List<GameHandle> getRunning() {
+        synchronized (RUNNING) {
+            return new ArrayList<>(RUNNING.values());
         }
-        return arg;
     }
 
-    private String buildClasspath(Version version) {
-        StringBuilder cp = new StringBuilder();
-        String separator = System.getProperty("path.separator");
-        java.util.Set<String> addedPaths = new java.util.HashSet<>();
-        java.util.Set<String> addedArtifacts = new java.util.HashSet<>();
-
-        // Add libraries
-        if (version.getLibraries() != null) {
-            for (Library lib : version.getLibraries()) {
-                // Strict filter for 1.21+ log4j-slf4j-impl conflict
-                // Version ID for NeoForge 1.21 is "neoforge-21.x.x", vanilla is "1.21.x"
-                boolean isModern = version.getId().contains("1.21") || version.getId().contains("neoforge-21");
-
-                if (isModern && lib.getName() != null && lib.getName().contains(":log4j-slf4j-impl:")) {
-                    System.out.println(
-                            "Skipping conflicting library: " + lib.getName() + " for version " + version.getId());
-                    continue;
-                }
+    /**
+     * The game directory for an instance: the work directory itself for the
+     * default instance, {@code instances/<name>/} otherwise. Libraries, assets
+     * and versions always stay shared in the work directory. Characters other
+     * than letters, digits, dots, spaces, dashes and underscores become
+     * {@code _}, and so do the dots of a name made only of dots, which would
+     * otherwise resolve to {@code instances/} or the work directory.
+     */
+    public File instanceDirectory(String instance) {
+        if (instance == null || instance.isBlank() || instance.equals(DEFAULT_INSTANCE))
+            return workDir;
+        String name = instance.trim().replaceAll("[^A-Za-z0-9._ -]+", "_");
+        if (name.chars().allMatch(c -> c == '.'))
+            name = name.replace('.', '_');
+        return new File(workDir, "instances/" + name);
+    }
 
-                // Deduplication by Artifact ID (keep first/newest)
-                if (lib.getName() != null) {
-                    if (!lib.appliesTo(this.osName, this.osArch)) {
-                        continue;
-                    }
-
-                    String[] parts = lib.getName().split(":");
-                    if (parts.length >= 2) {
-                        String key = parts[0] + ":" + parts[1];
-                        // Important: Include classifier in key (e.g. natives) to avoid filtering
-                        // natives
-                        if (parts.length > 3) {
-                            key += ":" + parts[3];
-                        }
-
-                        if (addedArtifacts.contains(key)) {
-                            // System.out.println("Skipping duplicate library version: " + lib.name);
-                            continue;
-                        }
-                        addedArtifacts.add(key);
-                    }
-                }
+    /**
+     * A version's arguments compiled into templates once, with rules applied.
+     */
+    private static class CompiledArguments {
+        /** JVM arguments, or null to use the built-in defaults. */
+        List<ArgumentTemplate> jvm;
+        List<ArgumentTemplate> game = List.of();
+    }
 
-                File libFile = null;
+    private CompiledArguments compiledArguments(Version version) {
+        String key = version.getChainHash() != null ? version.getChainHash() : version.getId();
+        return COMPILED.computeIfAbsent(rules.getKey() + " " + key, k -> {
+            CompiledArguments compiled = new CompiledArguments();
+            if (version.getArguments() != null) {
+                if (version.getArguments().getJvm() != null)
+                    compiled.jvm = ArgumentTemplate.compileAll(version.getArguments().getJvm(), rules::allowsJson);
+                if (version.getArguments().getGame() != null)
+                    compiled.game = ArgumentTemplate.compileAll(version.getArguments().getGame(), rules::allowsJson);
+            } else if (version.getMinecraftArguments() != null) {
+                compiled.game = ArgumentTemplate.compileLegacy(version.getMinecraftArguments());
+            }
+            return compiled;
+        });
+    }
 
-                // Vanilla (downloads)
-                if (lib.getDownloads() != null && lib.getDownloads().getArtifact() != null) {
-                    libFile = new File(workDir, "libraries/" + lib.getDownloads().getArtifact().getPath());
-                }
-                // Fabric/Forge/NeoForge (Maven)
-                else if (lib.getName() != null) {
-                    String[] parts = lib.getName().split(":");
-                    String group = parts[0].replace('.', '/');
-                    String artifact = parts[1];
-                    String libVersion = parts[2];
-                    String path = group + "/" + artifact + "/" + libVersion + "/" + artifact + "-" + libVersion
-                            + ".jar";
-                    libFile = new File(workDir, "libraries/" + path);
-                }
+    private String buildClasspath(Version version, LibraryPlan plan) {
+        StringBuilder cp = new StringBuilder();
+        String separator = System.getProperty("path.separator");
+        java.util.Set<String> addedPaths = new java.util.HashSet<>();
 
-                if (libFile != null) {
-                    String absPath = libFile.getAbsolutePath();
-                    if (addedPaths.add(absPath)) { // Only add if not already present
-                        if (cp.length() > 0)
-                            cp.append(separator);
-                        cp.append(absPath);
-                    }
-                }
+        // Add libraries (rules, natives and duplicates are already handled by the plan)
+        File librariesDir = new File(workDir, "libraries");
+        for (LibraryPlan.Entry entry : plan.getClasspath()) {
+            String absPath = entry.file(librariesDir).getAbsolutePath();
+            if (addedPaths.add(absPath)) {
+                if (cp.length() > 0)
+                    cp.append(separator);
+                cp.append(absPath);
             }
         }
 
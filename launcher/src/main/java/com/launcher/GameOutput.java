@@ -0,0 +1,326 @@
+package com.launcher;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carries the game's stdout and stderr to the launcher without ever making the
+ * game wait.
+ *
+ * One reader per stream drains the pipe into a fixed ring of reusable line
+ * slots; a dispatcher hands whatever has accumulated to the consumers in
+ * batches. When the consumers fall behind the ring overwrites its oldest lines
+ * and reports how many were lost, so a chatty client costs at most
+ * {@code capacity} lines of heap and is never blocked on a full pipe. Lines
+ * longer than {@link #MAX_LINE_BYTES} are cut.
+ */
+public class GameOutput {
+    public static final int DEFAULT_CAPACITY = 8192;
+    static final int MAX_LINE_BYTES = 16 * 1024;
+
+    private final Line[] ring;
+    private final Line[] batch;
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private final Charset charset;
+
+    // Guarded by this
+    private long written;
+    private long read;
+    private long dropped;
+    private int openStreams;
+
+    private ExecutorService executor;
+
+    /**
+     * One line of output. Instances are reused; consumers must copy what they
+     * want to keep.
+     */
+    public static final class Line {
+        private String text;
+        private boolean error;
+        private long nanos;
+
+        Line() {
+        }
+
+        Line(String text, boolean error, long nanos) {
+            this.text = text;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /** True if the line came from stderr. */
+        public boolean isError() {
+            return error;
+        }
+
+        /** {@link System#nanoTime()} when the line was read. */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * Receives output in batches on the dispatcher thread.
+     */
+    public interface Consumer {
+        void accept(List<Line> lines);
+
+        /** Called when {@code count} lines were overwritten before being dispatched. */
+        default void dropped(long count) {
+        }
+
+        /** Called once after the last batch. */
+        default void close() {
+        }
+    }
+
+    public GameOutput() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public GameOutput(int capacity) {
+        this.ring = new Line[capacity];
+        this.batch = new Line[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new Line();
+            batch[i] = new Line();
+        }
+        String encoding = System.getProperty("native.encoding");
+        this.charset = encoding != null && Charset.isSupported(encoding) ? Charset.forName(encoding)
+                : Charset.defaultCharset();
+    }
+
+    public void addConsumer(Consumer consumer) {
+        consumers.add(consumer);
+    }
+
+    /**
+     * Starts reading {@code process}'s stdout and stderr, which must not be
+     * redirected.
+     */
+    public void start(Process process) {
+        synchronized (this) {
+            openStreams = 2;
+        }
+        executor = LauncherThreads.newPerTaskExecutor("game-output");
+        executor.execute(() -> read(process.getInputStream(), false));
+        executor.execute(() -> read(process.getErrorStream(), true));
+        executor.execute(this::dispatch);
+        executor.shutdown();
+    }
+
+    /**
+     * Waits until both streams ended and every line was dispatched.
+     */
+    public void awaitDrained() throws InterruptedException {
+        if (executor != null)
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void read(InputStream in, boolean error) {
+        byte[] buffer = new byte[8192];
+        byte[] line = new byte[MAX_LINE_BYTES];
+        int length = 0;
+        try (in) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n') {
+                        publish(line, length, error);
+                        length = 0;
+                    } else if (length < line.length) {
+                        line[length++] = b;
+                    }
+                }
+            }
+            if (length > 0)
+                publish(line, length, error);
+        } catch (IOException e) {
+            // Pipe closed with the process
+        } finally {
+            synchronized (this) {
+                openStreams--;
+                notifyAll();
+            }
+        }
+    }
+
+    private void publish(byte[] bytes, int length, boolean error) {
+        if (length > 0 && bytes[length - 1] == '\r')
+            length--;
+        String text = new String(bytes, 0, length, charset);
+        long nanos = System.nanoTime();
+        synchronized (this) {
+            if (written - read == ring.length) {
+                read++; // Overwrite the oldest line
+                dropped++;
+            }
+            Line slot = ring[(int) (written % ring.length)];
+            slot.text = text;
+            slot.error = error;
+            slot.nanos = nanos;
+            written++;
+            notifyAll();
+        }
+    }
+
+    private void dispatch() {
+        try {
+            while (true) {
+                int count;
+                long lost;
+                synchronized (this) {
+                    while (written == read && openStreams > 0)
+                        wait();
+                    if (written == read)
+                        break;
+                    count = (int) (written - read);
+                    for (int i = 0; i < count; i++) {
+                        Line from = ring[(int) ((read + i) % ring.length)];
+                        Line to = batch[i];
+                        to.text = from.text;
+                        to.error = from.error;
+                        to.nanos = from.nanos;
+                        from.text = null;
+                    }
+                    read = written;
+                    lost = dropped;
+                    dropped = 0;
+                }
+
+                List<Line> lines = Arrays.asList(batch).subList(0, count);
+                for (Consumer consumer : consumers) {
+                    try {
+                        if (lost > 0)
+                            consumer.dropped(lost);
+                        consumer.accept(lines);
+                    } catch (RuntimeException e) {
+                        System.err.println("Game output consumer failed: " + e);
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    batch[i].text = null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Consumer consumer : consumers) {
+                try {
+                    consumer.close();
+                } catch (RuntimeException e) {
+                    System.err.println("Game output consumer failed: " + e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints lines to the launcher's own stdout/stderr (and with it the
+     * console view, which captures those).
+     */
+    public static class ConsoleSink implements Consumer {
+        private final PrintStream out;
+        private final PrintStream err;
+
+        public ConsoleSink() {
+            this(System.out, System.err);
+        }
+
+        public ConsoleSink(PrintStream out, PrintStream err) {
+            this.out = out;
+            this.err = err;
+        }
+
+        @Override
+        public void accept(List<Line> lines) {
+            StringBuilder stdout = new StringBuilder();
+            StringBuilder stderr = new StringBuilder();
+            for (Line line : lines) {
+                (line.isError() ? stderr : stdout).append(line.getText()).append(System.lineSeparator());
+            }
+            if (stdout.length() > 0)
+                out.print(stdout);
+            if (stderr.length() > 0)
+                err.print(stderr);
+        }
+
+        @Override
+        public void dropped(long count) {
+            err.println("[launcher] " + count + " lines of game output skipped");
+        }
+    }
+
+    /**
+     * Writes every line to a session log file, stderr lines marked with
+     * {@code [stderr]}.
+     */
+    public static class FileSink implements Consumer {
+        private final File file;
+        private BufferedWriter writer;
+
+        public FileSink(File file) {
+            this.file = file;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public void accept(List<Line> lines) {
+            try {
+                if (writer == null) {
+                    file.getParentFile().mkdirs();
+                    writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+                }
+                for (Line line : lines) {
+                    if (line.isError())
+                        writer.write("[stderr] ");
+                    writer.write(line.getText());
+                    writer.newLine();
+                }
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Could not write game log " + file + ": " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void dropped(long count) {
+            try {
+                if (writer != null)
+                    writer.write("[launcher] " + count + " lines skipped" + System.lineSeparator());
+            } catch (IOException e) {
+                // Reported with the next write
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (writer != null)
+                    writer.close();
+            } catch (IOException e) {
+                System.err.println("Could not close game log " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
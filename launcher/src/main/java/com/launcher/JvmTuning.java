@@ -0,0 +1,263 @@
+package com.launcher;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * GC and heap flags for the game JVM, picked by a tuning profile and derived
+ * from the core count, the RAM setting, the Java version and (on Linux) huge
+ * page support.
+ *
+ * Before use the flags are checked against the target JVM: names it does not
+ * list in {@code -XX:+PrintFlagsFinal} are dropped, and if the remaining set
+ * still fails {@code -version} the profile is skipped altogether. The flag
+ * list of each JVM is asked for once per launcher run.
+ */
+public final class JvmTuning {
+    private static final Map<String, Set<String>> SUPPORTED = new ConcurrentHashMap<>();
+
+    public enum Profile {
+        /** Only -Xmx, as before. */
+        DEFAULT("Default"),
+        /** G1 with a short pause goal, a fixed heap and a larger young generation. */
+        G1_LOW_PAUSE("G1 (low pause)"),
+        /** Generational ZGC on Java 21+, G1 low-pause otherwise. */
+        ZGC("Generational ZGC"),
+        /** Parallel GC: best frame time on average, longer pauses. */
+        THROUGHPUT("Throughput (Parallel)");
+
+        private final String displayName;
+
+        Profile(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+
+        public static Profile fromName(String name) {
+            for (Profile profile : values()) {
+                if (profile.name().equals(name) || profile.displayName.equals(name))
+                    return profile;
+            }
+            return DEFAULT;
+        }
+    }
+
+    private JvmTuning() {
+    }
+
+    /**
+     * Returns the validated flags for {@code profile}; -Xmx is not included.
+     *
+     * @param javaPath the java executable that will run the game
+     */
+    public static List<String> flags(Profile profile, int ramMB, String javaPath) {
+        List<String> flags = derive(profile, ramMB, Runtime.getRuntime().availableProcessors(),
+                Runtime.version().feature(), largePages(ramMB));
+        if (flags.isEmpty())
+            return flags;
+        List<String> valid = validate(javaPath, ramMB, flags);
+        System.out.println("JVM tuning " + profile.getDisplayName() + ": " + String.join(" ", valid));
+        return valid;
+    }
+
+    static List<String> derive(Profile profile, int ramMB, int cores, int javaVersion, String largePages) {
+        List<String> flags = new ArrayList<>();
+        if (profile == Profile.ZGC && javaVersion < 21) {
+            System.out.println("Generational ZGC needs Java 21+, using G1 (low pause) on Java " + javaVersion);
+            profile = Profile.G1_LOW_PAUSE;
+        }
+        // Leave cores to the render and server threads
+        int concurrentThreads = Math.max(1, cores / 4);
+        // Touching the whole heap up front costs startup time; only worth it
+        // when there are cores to do it in parallel
+        boolean preTouch = cores >= 4;
+
+        switch (profile) {
+            case G1_LOW_PAUSE -> {
+                flags.add("-Xms" + ramMB + "M");
+                flags.add("-XX:+UseG1GC");
+                flags.add("-XX:MaxGCPauseMillis=" + (ramMB >= 8192 ? 50 : 37));
+                flags.add("-XX:+UnlockExperimentalVMOptions");
+                flags.add("-XX:G1NewSizePercent=" + (ramMB >= 12288 ? 40 : 30));
+                flags.add("-XX:G1MaxNewSizePercent=" + (ramMB >= 12288 ? 50 : 40));
+                flags.add("-XX:G1HeapRegionSize=" + (ramMB >= 12288 ? 16 : 8) + "M");
+                flags.add("-XX:G1ReservePercent=20");
+                flags.add("-XX:InitiatingHeapOccupancyPercent=15");
+                flags.add("-XX:+ParallelRefProcEnabled");
+                flags.add("-XX:ConcGCThreads=" + concurrentThreads);
+                flags.add("-XX:+DisableExplicitGC");
+                if (preTouch)
+                    flags.add("-XX:+AlwaysPreTouch");
+            }
+            case ZGC -> {
+                flags.add("-Xms" + ramMB + "M");
+                flags.add("-XX:+UseZGC");
+                // Generational is the only mode from 23 on, where the flag is deprecated
+                if (javaVersion < 23)
+                    flags.add("-XX:+ZGenerational");
+                flags.add("-XX:SoftMaxHeapSize=" + ramMB * 85 / 100 + "M");
+                flags.add("-XX:ConcGCThreads=" + concurrentThreads);
+                flags.add("-XX:+DisableExplicitGC");
+                if (preTouch)
+                    flags.add("-XX:+AlwaysPreTouch");
+            }
+            case THROUGHPUT -> {
+                flags.add("-Xms" + ramMB / 2 + "M");
+                flags.add("-XX:+UseParallelGC");
+                flags.add("-XX:ParallelGCThreads=" + Math.max(1, cores - 1));
+                flags.add("-XX:+UseAdaptiveSizePolicy");
+            }
+            default -> {
+                return flags;
+            }
+        }
+
+        if ("explicit".equals(largePages))
+            flags.add("-XX:+UseLargePages");
+        else if ("transparent".equals(largePages))
+            flags.add("-XX:+UseTransparentHugePages");
+        return flags;
+    }
+
+    /**
+     * "explicit" if enough preallocated huge pages are free for the heap,
+     * "transparent" if transparent huge pages can be used, else null. Linux
+     * only.
+     */
+    private static String largePages(int ramMB) {
+        if (!System.getProperty("os.name").toLowerCase().contains("linux"))
+            return null;
+        try {
+            File meminfo = new File("/proc/meminfo");
+            if (meminfo.isFile()) {
+                long freePages = 0;
+                long pageKiB = 0;
+                for (String line : Files.readAllLines(meminfo.toPath(), StandardCharsets.US_ASCII)) {
+                    String[] parts = line.trim().split("\\s+");
+                    if (parts.length >= 2 && parts[0].equals("HugePages_Free:"))
+                        freePages = Long.parseLong(parts[1]);
+                    else if (parts.length >= 2 && parts[0].equals("Hugepagesize:"))
+                        pageKiB = Long.parseLong(parts[1]);
+                }
+                if (freePages * pageKiB >= ramMB * 1024L)
+                    return "explicit";
+            }
+            File thp = new File("/sys/kernel/mm/transparent_hugepage/enabled");
+            if (thp.isFile()) {
+                String mode = Files.readString(thp.toPath(), StandardCharsets.US_ASCII);
+                if (mode.contains("[always]") || mode.contains("[madvise]"))
+                    return "transparent";
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Unreadable; go without large pages
+        }
+        return null;
+    }
+
+    /**
+     * Drops flags {@code javaPath} does not know, then checks that the JVM
+     * starts with the rest.
+     */
+    private static List<String> validate(String javaPath, int ramMB, List<String> flags) {
+        Set<String> supported = SUPPORTED.computeIfAbsent(javaPath, JvmTuning::supportedFlags);
+        List<String> valid = new ArrayList<>(flags.size());
+        for (String flag : flags) {
+            String name = flagName(flag);
+            if (name == null || supported.isEmpty() || supported.contains(name))
+                valid.add(flag);
+            else
+                System.out.println("Dropping unsupported JVM flag " + flag);
+        }
+
+        // Without the initial heap size and pre-touch, which would commit the whole heap
+        List<String> check = new ArrayList<>();
+        check.add(javaPath);
+        check.add("-Xmx" + ramMB + "M");
+        for (String flag : valid) {
+            if (!flag.startsWith("-Xms") && !flag.equals("-XX:+AlwaysPreTouch"))
+                check.add(flag);
+        }
+        check.add("-version");
+        try {
+            if (run(check, null) != 0) {
+                System.err.println("JVM does not start with the tuning flags, launching without them");
+                return List.of();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not check JVM flags: " + e.getMessage());
+        }
+        return valid;
+    }
+
+    /**
+     * The {@code -XX} option name of {@code flag}, or null for other options.
+     */
+    private static String flagName(String flag) {
+        if (!flag.startsWith("-XX:"))
+            return null;
+        String name = flag.substring(4);
+        if (name.startsWith("+") || name.startsWith("-"))
+            return name.substring(1);
+        int eq = name.indexOf('=');
+        return eq >= 0 ? name.substring(0, eq) : name;
+    }
+
+    /**
+     * Every flag name the JVM lists, or an empty set (meaning "do not filter")
+     * if it could not be asked.
+     */
+    private static Set<String> supportedFlags(String javaPath) {
+        Set<String> names = new HashSet<>();
+        List<String> command = List.of(javaPath, "-XX:+UnlockExperimentalVMOptions",
+                "-XX:+UnlockDiagnosticVMOptions", "-XX:+PrintFlagsFinal", "-version");
+        try {
+            // Lines look like: "     bool UseZGC     = false     {product} {default}"
+            run(command, line -> {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length >= 3 && parts[2].equals("="))
+                    names.add(parts[1]);
+            });
+        } catch (IOException e) {
+            System.err.println("Could not list JVM flags: " + e.getMessage());
+        }
+        return names;
+    }
+
+    private static int run(List<String> command, Consumer<String> handler) throws IOException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (handler != null)
+                    handler.accept(line);
+            }
+        }
+        try {
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("Timed out: " + String.join(" ", command));
+            }
+            return process.exitValue();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while checking JVM flags", e);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * Everything needed to start a version again without preparing it: the final
+ * command line (and the {@link ArgFile} it refers to), its classpath, and the
+ * files the launch depends on as they were after the last successful
+ * preparation.
+ *
+ * Plans are stored per selection (loader type and version as picked in the UI)
+ * in {@code launch-plans/}. A stored plan is current while the settings hash
+ * (user, RAM, JVM tuning, cores, Java, OS, arch and argfile mode) matches,
+ * every version JSON in the inheritance chain hashes the same, every required
+ * file still has its recorded size and mtime, and the asset index is still
+ * marked verified. A current plan is launched as is: no installer check,
+ * manifest fetch, version merge or download pass.
+ */
+public class LaunchPlan {
+    private static final int FORMAT = 1;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private int format;
+    private String settings;
+    private String versionId;
+    private List<String> command;
+    private String classpath;
+    private String gameDirectory;
+    private String nativesDirectory;
+    private String argFile;
+    private String assetIndex;
+    private List<FileState> chain = new ArrayList<>();
+    private List<FileState> files = new ArrayList<>();
+
+    /**
+     * A file as it was when the plan was saved. Version JSONs are compared by
+     * content hash, everything else by size and mtime.
+     */
+    private static class FileState {
+        private String path;
+        private long size;
+        private long mtime;
+        private String sha1;
+    }
+
+    /**
+     * @param argFile the argfile {@code command} refers to, or null
+     */
+    public LaunchPlan(String versionId, List<String> command, String classpath, File gameDirectory,
+            File nativesDirectory, File argFile, String assetIndex) {
+        this.format = FORMAT;
+        this.versionId = versionId;
+        this.command = new ArrayList<>(command);
+        this.classpath = classpath;
+        this.gameDirectory = gameDirectory.getAbsolutePath();
+        this.nativesDirectory = nativesDirectory.getAbsolutePath();
+        this.argFile = argFile != null ? argFile.getAbsolutePath() : null;
+        this.assetIndex = assetIndex;
+    }
+
+    public String getVersionId() {
+        return versionId;
+    }
+
+    public List<String> getCommand() {
+        return command;
+    }
+
+    public String getClasspath() {
+        return classpath;
+    }
+
+    /** Directory for saves, mods and options, or null for plans stored before instances. */
+    public File getGameDirectory() {
+        return gameDirectory != null ? new File(gameDirectory) : null;
+    }
+
+    /**
+     * Hash of the launcher settings that end up in the command line.
+     */
+    public static String settingsHash(String username, int ramMB, JvmTuning.Profile tuning) {
+        String settings = FORMAT + "\n" + username + "\n" + ramMB + "\n" + tuning + "\n"
+                + Runtime.getRuntime().availableProcessors() + "\n" + System.getProperty("java.home") + "\n"
+                + System.getProperty("os.name") + "\n" + System.getProperty("os.arch") + "\n" + ArgFile.isEnabled();
+        return Hashing.toHex(Hashing.newSha1().digest(settings.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Returns the stored plan for {@code selection} if it is still current,
+     * otherwise null.
+     */
+    public static LaunchPlan loadIfCurrent(File workDir, String selection, String settingsHash) {
+        File file = fileFor(workDir, selection);
+        if (!file.isFile())
+            return null;
+
+        long start = System.nanoTime();
+        LaunchPlan plan;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            plan = GSON.fromJson(reader, LaunchPlan.class);
+        } catch (IOException | JsonParseException e) {
+            System.out.println("Launch plan for " + selection + " is unreadable, preparing again");
+            return null;
+        }
+
+        String stale = plan == null ? "empty" : plan.checkCurrent(workDir, settingsHash);
+        if (stale != null) {
+            System.out.println("Launch plan for " + selection + " is stale (" + stale + "), preparing again");
+            return null;
+        }
+        System.out.println("Launch plan for " + selection + " is current (checked " + plan.files.size()
+                + " files in " + (System.nanoTime() - start) / 1_000_000 + " ms)");
+        return plan;
+    }
+
+    /**
+     * Returns null if the plan can be launched as is, or why not.
+     */
+    String checkCurrent(File workDir, String settingsHash) {
+        if (format != FORMAT || command == null || command.isEmpty() || chain == null || files == null)
+            return "old format";
+        if (!settingsHash.equals(settings))
+            return "settings changed";
+
+        for (FileState json : chain) {
+            File file = new File(workDir, json.path);
+            try {
+                if (!file.isFile() || !json.sha1.equals(Hashing.sha1(file)))
+                    return json.path + " changed";
+            } catch (IOException e) {
+                return json.path + " unreadable";
+            }
+        }
+        for (FileState state : files) {
+            File file = new File(state.path);
+            if (file.length() != state.size || file.lastModified() != state.mtime)
+                return file.getName() + " changed";
+        }
+        if (!new File(nativesDirectory).isDirectory())
+            return "natives missing";
+        if (argFile != null && !new File(argFile).isFile())
+            return "argfile missing";
+        if (assetIndex != null) {
+            File assetsDir = new File(workDir, "assets");
+            if (!new AssetLedger(assetsDir).isIndexVerified(assetIndex,
+                    new File(assetsDir, "indexes/" + assetIndex + ".json")))
+                return "assets not verified";
+        }
+        return null;
+    }
+
+    /**
+     * Records the current state of the version JSON chain and of every
+     * classpath entry, and stores the plan for {@code selection}. Call only
+     * after the version was fully prepared.
+     */
+    public void save(File workDir, String selection, String settingsHash) throws IOException {
+        settings = settingsHash;
+        chain = readChain(workDir, versionId);
+        files = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            File file = new File(entry);
+            if (!file.isFile())
+                throw new IOException("Not saving launch plan, " + file + " is missing");
+            FileState state = new FileState();
+            state.path = file.getAbsolutePath();
+            state.size = file.length();
+            state.mtime = file.lastModified();
+            files.add(state);
+        }
+
+        File file = fileFor(workDir, selection);
+        file.getParentFile().mkdirs();
+        Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                GSON.toJson(this, writer);
+            }
+            DownloadEngine.commit(temp, file.toPath());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Hashes the version JSON and every JSON it inherits from.
+     */
+    private static List<FileState> readChain(File workDir, String versionId) throws IOException {
+        List<FileState> chain = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+        String id = versionId;
+        while (id != null && !id.isEmpty() && !seen.contains(id)) {
+            seen.add(id);
+            String path = "versions/" + id + "/" + id + ".json";
+            byte[] json = Files.readAllBytes(new File(workDir, path).toPath());
+            FileState state = new FileState();
+            state.path = path;
+            state.sha1 = Hashing.toHex(Hashing.newSha1().digest(json));
+            chain.add(state);
+
+            id = null;
+            try {
+                JsonElement root = JsonParser.parseString(new String(json, StandardCharsets.UTF_8));
+                if (root.isJsonObject()) {
+                    JsonObject object = root.getAsJsonObject();
+                    if (object.has("inheritsFrom") && object.get("inheritsFrom").isJsonPrimitive())
+                        id = object.get("inheritsFrom").getAsString();
+                }
+            } catch (JsonParseException e) {
+                throw new IOException("Invalid version JSON: " + path, e);
+            }
+        }
+        return chain;
+    }
+
+    private static File fileFor(File workDir, String selection) {
+        return new File(workDir, "launch-plans/" + selection.replaceAll("[^A-Za-z0-9._-]+", "_") + ".json");
+    }
+}
@@ -0,0 +1,105 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.launcher.model.Version;
+
+/**
+ * Prepares a version for launch, launch-critical work first. The client jar,
+ * libraries and the asset index (plus boot-critical assets) are fetched in
+ * parallel and must all succeed; sounds and music continue in the background
+ * after this returns, so the game can start as soon as the classpath is
+ * complete.
+ */
+public class LaunchPreparation {
+    private final VersionManager versionManager;
+    private final AssetManager assetManager;
+    private final LibraryManager libraryManager;
+
+    public LaunchPreparation(File workDir, VersionManager versionManager) {
+        this.versionManager = versionManager;
+        this.assetManager = new AssetManager(workDir);
+        this.libraryManager = new LibraryManager(workDir);
+    }
+
+    private interface Step {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs the critical steps and returns a future for the background asset
+     * downloads.
+     *
+     * @param needsClientJar false for loaders (Forge/NeoForge) whose installer
+     *                       already provides the game jar
+     */
+    public CompletableFuture<Void> prepare(Version version, boolean needsClientJar) throws IOException {
+        List<CompletableFuture<Void>> background = new ArrayList<>(1);
+        List<Step> steps = new ArrayList<>();
+        steps.add(() -> background.add(assetManager.downloadAssetsCriticalFirst(version)));
+        if (version.getLibraries() != null)
+            steps.add(inGroup("libraries",
+                    () -> libraryManager.downloadLibraries(version).throwIfFailed("libraries")));
+        if (needsClientJar)
+            steps.add(inGroup("client", () -> versionManager.downloadGameJar(version)));
+
+        runAll(steps);
+        return background.isEmpty() ? CompletableFuture.completedFuture(null) : background.get(0);
+    }
+
+    /**
+     * Charges a step's downloads to its own bandwidth group, so fair-share mode
+     * can split the rate between libraries, the client jar and assets.
+     */
+    private static Step inGroup(String group, Step step) {
+        return () -> {
+            DownloadEngine.setCurrentGroup(group);
+            try {
+                step.run();
+            } finally {
+                DownloadEngine.setCurrentGroup(null);
+            }
+        };
+    }
+
+    private void runAll(List<Step> steps) throws IOException {
+        ExecutorService executor = LauncherThreads.newPerTaskExecutor("prepare");
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Step step : steps) {
+                futures.add(executor.submit(() -> {
+                    step.run();
+                    return null;
+                }));
+            }
+
+            IOException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    IOException cause = e.getCause() instanceof IOException ? (IOException) e.getCause()
+                            : new IOException(e.getCause());
+                    if (failure == null)
+                        failure = cause;
+                    else
+                        failure.addSuppressed(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while preparing launch", e);
+                }
+            }
+            if (failure != null)
+                throw failure;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.launcher;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread helpers for blocking I/O work. The launcher is compiled for Java 17
+ * but usually runs on 21, so virtual threads are used when the running JVM
+ * has them and daemon platform threads otherwise.
+ */
+public final class LauncherThreads {
+    private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+    private LauncherThreads() {
+    }
+
+    /**
+     * Returns an executor that starts a new thread per task: virtual on Java 21+,
+     * a cached pool of daemon threads on older runtimes.
+     */
+    public static ExecutorService newPerTaskExecutor(String name) {
+        if (VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Fall through to platform threads
+            }
+        }
+        return Executors.newCachedThreadPool(daemonFactory(name));
+    }
+
+    public static ThreadFactory daemonFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static Method findVirtualExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
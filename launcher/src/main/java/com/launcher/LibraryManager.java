@@ -2,87 +2,104 @@ package com.launcher;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import com.launcher.model.Library;
+
 import com.launcher.model.Version;
 
 public class LibraryManager {
+    private static final int INITIAL_LIMIT = 8;
+    private static final int MIN_LIMIT = 2;
+    private static final int MAX_LIMIT = 16;
+
+    private final File workDir;
     private final File librariesDir;
+    private final MavenResolver resolver;
     private final String osName;
 
     public LibraryManager(File workDir) {
+        this.workDir = workDir;
         this.librariesDir = new File(workDir, "libraries");
-
-        String os = System.getProperty("os.name").toLowerCase();
-        if (os.contains("win")) {
-            this.osName = "windows";
-        } else if (os.contains("mac")) {
-            this.osName = "osx";
-        } else {
-            this.osName = "linux";
-        }
+        this.resolver = new MavenResolver(librariesDir);
+        this.osName = RuleEngine.currentOsName();
     }
 
-    public void downloadLibraries(Version version) {
-        System.out.println("Verified libraries for " + this.osName + "...");
-        int count = 0;
-
-        if (version.getLibraries() == null)
-            return;
+    /**
+     * Verifies and downloads every artifact of the version's {@link LibraryPlan},
+     * several at a time. Errors do not stop the other libraries; they are
+     * collected in the result, keyed by library name, so the caller can refuse
+     * to launch with {@link DownloadScheduler.Result#throwIfFailed(String)}.
+     */
+    public DownloadScheduler.Result downloadLibraries(Version version) throws IOException {
+        System.out.println("Verifying libraries for " + this.osName + "...");
+        LibraryPlan plan = LibraryPlan.load(workDir, version, osName, System.getProperty("os.arch"));
+        DownloadScheduler scheduler = new DownloadScheduler("libraries", INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT);
+        for (LibraryPlan.Entry entry : plan.getEntries()) {
+            scheduler.add(entry.getName(), Math.max(0, entry.getSize()), () -> download(entry));
+        }
 
-        for (Library lib : version.getLibraries()) {
-            if (shouldDownload(lib)) {
-                try {
-                    downloadLibrary(lib);
-                    count++;
-                } catch (IOException e) {
-                    System.err.println("Error downloading library: " + lib.getName());
-                    e.printStackTrace();
-                }
-            }
+        DownloadScheduler.Result result;
+        try {
+            result = scheduler.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading libraries", e);
+        } finally {
+            resolver.save();
         }
-        System.out.println("Downloaded " + count + " libraries for " + this.osName);
+        System.out.println("Libraries ready for " + this.osName + " in " + result.getElapsedMillis() + " ms ("
+                + result.getCompleted() + " ok, " + result.getFailures().size() + " failed)");
+        for (DownloadScheduler.Failure failure : result.getFailures()) {
+            System.err.println("Error downloading library " + failure.getName() + ": "
+                    + failure.getError().getMessage());
+        }
+        return result;
     }
 
-    private boolean shouldDownload(Library lib) {
-        // Use the model's logic
-        return lib.appliesTo(this.osName, System.getProperty("os.arch"));
+    /**
+     * Makes sure one artifact is on disk and returns the number of bytes
+     * downloaded for it (0 if it was already present or linked from the store).
+     */
+    private long download(LibraryPlan.Entry entry) throws IOException {
+        if (entry.isResolve())
+            return resolveArtifact(entry.getName(), MavenCoordinate.parse(entry.getName()), entry.getRepository());
+        return downloadArtifact(entry.getName(), entry.file(librariesDir), entry.getUrl(), entry.getSha1(),
+                entry.getSize());
     }
 
-    private void downloadLibrary(Library lib) throws IOException {
-        File libFile = null;
-        String url = null;
+    private long downloadArtifact(String name, File libFile, String url, String sha1, long size) throws IOException {
+        if (!needsDownload(libFile, size))
+            return 0;
 
-        // Vanilla Libraries
-        if (lib.getDownloads() != null && lib.getDownloads().getArtifact() != null) {
-            libFile = new File(librariesDir, lib.getDownloads().getArtifact().getPath());
-            url = lib.getDownloads().getArtifact().getUrl();
+        ArtifactStore store = ArtifactStore.shared();
+        if (store != null && store.linkInto(sha1, size, libFile)) {
+            System.out.println("Linked library from shared store: " + name);
+            return 0;
         }
-        // Fabric/Forge Libraries (Maven Central)
-        else if (lib.getName() != null) {
-            String[] parts = lib.getName().split(":");
-            String group = parts[0].replace('.', '/');
-            String artifact = parts[1];
-            String version = parts[2];
 
-            String path = group + "/" + artifact + "/" + version + "/" + artifact + "-" + version + ".jar";
-            libFile = new File(librariesDir, path);
+        // Installer-generated jars have no URL; if one is missing the install is broken
+        if (url == null || url.isEmpty())
+            throw new IOException("Missing " + libFile.getName() + " and no download URL");
 
-            // If JSON has a custom URL, use it, otherwise use Maven Central
-            String baseUrl = (lib.getUrl() != null) ? lib.getUrl() : "https://repo1.maven.org/maven2/";
-            url = baseUrl + path;
-        }
+        System.out.println("Downloading library: " + name);
+        DownloadEngine.shared().download(url, libFile, sha1, size);
+        if (store != null)
+            store.publish(sha1, libFile);
+        return libFile.length();
+    }
 
-        if (libFile != null && !libFile.exists()) {
-            System.out.println("Downloading library: " + lib.getName());
-            libFile.getParentFile().mkdirs();
+    private long resolveArtifact(String name, MavenCoordinate coordinate, String preferred) throws IOException {
+        File libFile = new File(librariesDir, coordinate.getPath());
+        if (!needsDownload(libFile, -1))
+            return 0;
 
-            try (InputStream in = new URL(url).openStream()) {
-                Files.copy(in, libFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            }
-        }
+        String repository = resolver.resolve(coordinate, preferred, libFile, null, -1);
+        System.out.println("Downloaded library " + name + " from " + repository);
+        return libFile.length();
+    }
+
+    private boolean needsDownload(File libFile, long expectedSize) {
+        if (!libFile.exists())
+            return true;
+        // A size mismatch means a truncated write from an interrupted launch
+        return expectedSize >= 0 && libFile.length() != expectedSize;
     }
 }
@@ -0,0 +1,246 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.launcher.model.Library;
+import com.launcher.model.Version;
+
+/**
+ * The libraries of a version for one OS and arch, with rules applied once:
+ * an ordered, deduplicated list of artifacts with their final path, URL, hash,
+ * size and whether they are native jars to extract rather than classpath
+ * entries. {@link LibraryManager}, {@link NativesManager} and the classpath
+ * builder all work from it.
+ *
+ * The plan is stored as {@code versions/<id>/<id>.libraries.json} and reused
+ * while the version's JSON chain hash, OS, arch and OS version are unchanged.
+ */
+public class LibraryPlan {
+    private static final int FORMAT = 2;
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private int format;
+    private String key;
+    private List<Entry> entries = new ArrayList<>();
+
+    /**
+     * One artifact of the plan.
+     */
+    public static class Entry {
+        private String name;
+        private String path;
+        private String url;
+        private String repository;
+        private boolean resolve;
+        private String sha1;
+        private long size = -1;
+        private boolean natives;
+        private List<String> exclude;
+
+        /** Maven coordinate, including the classifier for native jars. */
+        public String getName() {
+            return name;
+        }
+
+        /** Path relative to {@code libraries/}. */
+        public String getPath() {
+            return path;
+        }
+
+        /** Direct download URL; null or empty if there is none. */
+        public String getUrl() {
+            return url;
+        }
+
+        /** The library's own repository, tried first when resolving. */
+        public String getRepository() {
+            return repository;
+        }
+
+        /** True if the artifact has to be found with {@link MavenResolver}. */
+        public boolean isResolve() {
+            return resolve;
+        }
+
+        public String getSha1() {
+            return sha1;
+        }
+
+        /** Size in bytes, or -1 if unknown. */
+        public long getSize() {
+            return size;
+        }
+
+        /** True for native jars, which are extracted instead of put on the classpath. */
+        public boolean isNatives() {
+            return natives;
+        }
+
+        public List<String> getExclude() {
+            return exclude != null ? exclude : List.of();
+        }
+
+        public File file(File librariesDir) {
+            return new File(librariesDir, path);
+        }
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public List<Entry> getClasspath() {
+        List<Entry> classpath = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!entry.natives)
+                classpath.add(entry);
+        }
+        return classpath;
+    }
+
+    public List<Entry> getNatives() {
+        List<Entry> natives = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.natives)
+                natives.add(entry);
+        }
+        return natives;
+    }
+
+    /**
+     * Returns the stored plan for {@code version} if it is still current,
+     * otherwise computes and stores a new one.
+     */
+    public static LibraryPlan load(File workDir, Version version, String osName, String osArch) throws IOException {
+        RuleEngine rules = RuleEngine.of(osName, osArch, System.getProperty("os.version"), Set.of());
+        String key = version.getChainHash() == null ? null
+                : FORMAT + " " + version.getChainHash() + " " + rules.getKey();
+        File file = new File(workDir, "versions/" + version.getId() + "/" + version.getId() + ".libraries.json");
+
+        if (key != null && file.isFile()) {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                LibraryPlan stored = GSON.fromJson(reader, LibraryPlan.class);
+                if (stored != null && stored.format == FORMAT && key.equals(stored.key) && stored.entries != null)
+                    return stored;
+            } catch (JsonParseException e) {
+                // Damaged plan, recompute it
+            }
+        }
+
+        LibraryPlan plan = compute(version, rules, osName, osArch);
+        if (key != null) {
+            plan.key = key;
+            save(plan, file);
+        }
+        return plan;
+    }
+
+    /**
+     * Applies rules, picks native classifiers and deduplicates. The first
+     * occurrence of a library wins, so a child version's libraries override the
+     * same library (by group, artifact and classifier) inherited from its
+     * parent.
+     */
+    public static LibraryPlan compute(Version version, RuleEngine rules, String osName, String osArch) {
+        LibraryPlan plan = new LibraryPlan();
+        plan.format = FORMAT;
+        if (version.getLibraries() == null)
+            return plan;
+
+        // Strict filter for 1.21+ log4j-slf4j-impl conflict
+        // Version ID for NeoForge 1.21 is "neoforge-21.x.x", vanilla is "1.21.x"
+        boolean isModern = version.getId().contains("1.21") || version.getId().contains("neoforge-21");
+
+        Set<String> artifacts = new HashSet<>();
+        Set<String> paths = new HashSet<>();
+        for (Library lib : version.getLibraries()) {
+            if (!rules.allows(lib.getRules()))
+                continue;
+
+            NativesManager.NativeJar nativeJar = NativesManager.select(lib, osName, osArch);
+            if (nativeJar != null && paths.add(nativeJar.getPath()))
+                plan.entries.add(nativeEntry(lib, nativeJar));
+            if (NativesManager.isNativesOnly(lib))
+                continue;
+
+            if (isModern && lib.getName() != null && lib.getName().contains(":log4j-slf4j-impl:")) {
+                System.out.println(
+                        "Skipping conflicting library: " + lib.getName() + " for version " + version.getId());
+                continue;
+            }
+
+            Entry entry = artifactEntry(lib);
+            if (entry == null)
+                continue;
+            String artifactKey = lib.getName() != null ? MavenCoordinate.parse(lib.getName()).getVersionlessKey()
+                    : entry.path;
+            if (artifacts.add(artifactKey) && paths.add(entry.path))
+                plan.entries.add(entry);
+        }
+        return plan;
+    }
+
+    private static Entry artifactEntry(Library lib) {
+        Entry entry = new Entry();
+        entry.name = lib.getName();
+        // Vanilla (downloads)
+        if (lib.getDownloads() != null && lib.getDownloads().getArtifact() != null) {
+            Library.Artifact artifact = lib.getDownloads().getArtifact();
+            entry.path = artifact.getPath();
+            entry.url = artifact.getUrl();
+            entry.sha1 = artifact.getSha1();
+            // Some loader profiles omit the size; 0 means unknown
+            entry.size = artifact.getSize() > 0 ? artifact.getSize() : -1;
+            return entry;
+        }
+        // Fabric/Forge/NeoForge (Maven coordinate only)
+        if (lib.getName() == null)
+            return null;
+        entry.path = MavenCoordinate.parse(lib.getName()).getPath();
+        entry.repository = lib.getUrl();
+        entry.resolve = true;
+        return entry;
+    }
+
+    private static Entry nativeEntry(Library lib, NativesManager.NativeJar nativeJar) {
+        Entry entry = new Entry();
+        entry.name = nativeJar.getName();
+        entry.path = nativeJar.getPath();
+        entry.url = nativeJar.getUrl();
+        entry.sha1 = nativeJar.getSha1();
+        entry.size = nativeJar.getSize();
+        entry.natives = true;
+        entry.exclude = nativeJar.getExcludes().isEmpty() ? null : new ArrayList<>(nativeJar.getExcludes());
+        if (nativeJar.getCoordinate() != null) {
+            entry.repository = lib.getUrl();
+            entry.resolve = true;
+        }
+        return entry;
+    }
+
+    private static void save(LibraryPlan plan, File file) throws IOException {
+        file.getParentFile().mkdirs();
+        Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                GSON.toJson(plan, writer);
+            }
+            DownloadEngine.commit(temp, file.toPath());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.launcher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns game output into log events. Understands the console layout of
+ * vanilla and the loaders, {@code [12:34:56] [Render thread/INFO]: message}
+ * (Forge adds a {@code [logger/]} block before the colon). Lines that do not
+ * start a new event, such as stack trace lines, continue the previous one and
+ * keep its level.
+ */
+public class LogEventParser implements GameOutput.Consumer {
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final Event event = new Event();
+    private String level = "INFO";
+    private String thread = "";
+
+    /**
+     * A parsed line. The instance is reused for the next line.
+     */
+    public static final class Event {
+        private String level;
+        private String thread;
+        private String message;
+        private boolean continuation;
+        private long nanos;
+
+        /** Log level such as INFO, WARN or ERROR. */
+        public String getLevel() {
+            return level;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /** True for lines that belong to the previous event (stack traces). */
+        public boolean isContinuation() {
+            return continuation;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    public interface Listener {
+        void onEvent(Event event);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Number of events (not counting continuation lines) seen at
+     * {@code level}.
+     */
+    public long getCount(String level) {
+        AtomicLong count = counts.get(level);
+        return count != null ? count.get() : 0;
+    }
+
+    @Override
+    public void accept(List<GameOutput.Line> lines) {
+        for (GameOutput.Line line : lines) {
+            parse(line.getText(), line.isError());
+            event.nanos = line.getNanos();
+            for (Listener listener : listeners) {
+                listener.onEvent(event);
+            }
+        }
+    }
+
+    private void parse(String text, boolean error) {
+        // [time] [thread/LEVEL]( [logger/])?: message
+        int timeEnd = text.startsWith("[") ? text.indexOf("] [") : -1;
+        int headerEnd = timeEnd > 0 ? text.indexOf(']', timeEnd + 3) : -1;
+        int slash = headerEnd > 0 ? text.lastIndexOf('/', headerEnd) : -1;
+        int colon = headerEnd > 0 ? text.indexOf(": ", headerEnd) : -1;
+        if (slash > timeEnd + 3 && colon > 0) {
+            thread = text.substring(timeEnd + 3, slash);
+            level = text.substring(slash + 1, headerEnd);
+            event.message = text.substring(colon + 2);
+            event.continuation = false;
+            counts.computeIfAbsent(level, k -> new AtomicLong()).incrementAndGet();
+        } else if (text.startsWith("\t") || text.startsWith("Caused by: ") || text.startsWith("\tat ")) {
+            event.message = text;
+            event.continuation = true;
+        } else {
+            // Plain output (System.out prints, older versions)
+            level = error ? "ERROR" : "INFO";
+            thread = "";
+            event.message = text;
+            event.continuation = false;
+            counts.computeIfAbsent(level, k -> new AtomicLong()).incrementAndGet();
+        }
+        event.level = level;
+        event.thread = thread;
+    }
+}
@@ -0,0 +1,84 @@
+package com.launcher;
+
+/**
+ * A Maven coordinate in the {@code group:artifact:version[:classifier][@ext]}
+ * form used by library names in version JSONs, e.g.
+ * {@code org.lwjgl:lwjgl:3.3.3:natives-linux} or
+ * {@code de.oceanlabs.mcp:mcp_config:1.21.1-20240808.144430@zip}.
+ */
+public class MavenCoordinate {
+    private final String group;
+    private final String artifact;
+    private final String version;
+    private final String classifier;
+    private final String extension;
+
+    public MavenCoordinate(String group, String artifact, String version, String classifier, String extension) {
+        this.group = group;
+        this.artifact = artifact;
+        this.version = version;
+        this.classifier = classifier;
+        this.extension = extension;
+    }
+
+    /**
+     * Parses a library name. The extension defaults to {@code jar}.
+     *
+     * @throws IllegalArgumentException if the name has fewer than three parts
+     */
+    public static MavenCoordinate parse(String name) {
+        String extension = "jar";
+        int at = name.indexOf('@');
+        if (at >= 0) {
+            extension = name.substring(at + 1);
+            name = name.substring(0, at);
+        }
+        String[] parts = name.split(":");
+        if (parts.length < 3 || parts.length > 4)
+            throw new IllegalArgumentException("Not a Maven coordinate: " + name);
+        return new MavenCoordinate(parts[0], parts[1], parts[2], parts.length == 4 ? parts[3] : null, extension);
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getArtifact() {
+        return artifact;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getClassifier() {
+        return classifier;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Group and artifact plus classifier: the identity used to spot two
+     * versions of the same library.
+     */
+    public String getVersionlessKey() {
+        return group + ":" + artifact + (classifier != null ? ":" + classifier : "");
+    }
+
+    /**
+     * Repository-relative path, e.g.
+     * {@code org/lwjgl/lwjgl/3.3.3/lwjgl-3.3.3-natives-linux.jar}.
+     */
+    public String getPath() {
+        return group.replace('.', '/') + "/" + artifact + "/" + version + "/" + artifact + "-" + version
+                + (classifier != null ? "-" + classifier : "") + "." + extension;
+    }
+
+    @Override
+    public String toString() {
+        return group + ":" + artifact + ":" + version + (classifier != null ? ":" + classifier : "")
+                + ("jar".equals(extension) ? "" : "@" + extension);
+    }
+}
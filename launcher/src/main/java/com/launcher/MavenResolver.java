@@ -0,0 +1,193 @@
+package com.launcher;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds and downloads libraries that are only given by Maven coordinate (no
+ * {@code downloads} block), as loader profiles often do.
+ *
+ * Repositories are tried in order: the one that served the artifact last time,
+ * the library's own {@code url}, then {@link #DEFAULT_REPOSITORIES}. A 404 (or
+ * other definite client error) is remembered for
+ * {@code -Dlauncher.resolver.negativeTtlMinutes} (default one day) so later
+ * launches do not ask a repository for something it does not have.
+ *
+ * State lives in {@code libraries/.resolver/repositories.txt}; call
+ * {@link #save()} after a batch.
+ */
+public class MavenResolver {
+    public static final List<String> DEFAULT_REPOSITORIES = List.of(
+            "https://libraries.minecraft.net/",
+            "https://maven.fabricmc.net/",
+            "https://maven.minecraftforge.net/",
+            "https://maven.neoforged.net/releases/",
+            "https://repo1.maven.org/maven2/");
+
+    private static final String FORMAT = "v1";
+    private static final long NEGATIVE_TTL_MILLIS = Long.getLong("launcher.resolver.negativeTtlMinutes", 24 * 60L)
+            * 60_000L;
+
+    private final File stateFile;
+    private final List<String> repositories;
+    private final Map<String, String> served = new HashMap<>();
+    private final Map<String, Long> missing = new HashMap<>();
+    private boolean loaded;
+    private boolean dirty;
+
+    public MavenResolver(File librariesDir) {
+        this(librariesDir, DEFAULT_REPOSITORIES);
+    }
+
+    public MavenResolver(File librariesDir, List<String> repositories) {
+        this.stateFile = new File(librariesDir, ".resolver/repositories.txt");
+        this.repositories = repositories;
+    }
+
+    /**
+     * Downloads {@code coordinate} into {@code target} from the first repository
+     * that has it and returns that repository's base URL.
+     *
+     * @param preferred the library's own repository, or null
+     * @param sha1      expected hex SHA-1, or null if unknown
+     * @param size      expected size, or a negative value if unknown
+     */
+    public String resolve(MavenCoordinate coordinate, String preferred, File target, String sha1, long size)
+            throws IOException {
+        String path = coordinate.getPath();
+        IOException failure = null;
+        int skipped = 0;
+
+        for (String repository : candidates(path, preferred)) {
+            if (isKnownMissing(repository, path)) {
+                skipped++;
+                continue;
+            }
+            try {
+                DownloadEngine.shared().downloadWithoutMirrors(repository + path, target, sha1, size);
+                recordServed(path, repository);
+                return repository;
+            } catch (DownloadEngine.HttpStatusException e) {
+                if (!e.isRetryable())
+                    recordMissing(repository, path);
+                failure = addFailure(failure, e);
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted())
+                    throw e;
+                failure = addFailure(failure, e);
+            }
+        }
+
+        IOException e = new IOException("Could not resolve " + coordinate + " from any repository"
+                + (skipped > 0 ? " (" + skipped + " skipped, known missing)" : ""));
+        if (failure != null)
+            e.initCause(failure);
+        throw e;
+    }
+
+    private static IOException addFailure(IOException first, IOException next) {
+        if (first == null)
+            return next;
+        first.addSuppressed(next);
+        return first;
+    }
+
+    private synchronized List<String> candidates(String path, String preferred) throws IOException {
+        load();
+        Set<String> ordered = new LinkedHashSet<>();
+        String last = served.get(path);
+        if (last != null)
+            ordered.add(last);
+        if (preferred != null && !preferred.isEmpty())
+            ordered.add(preferred.endsWith("/") ? preferred : preferred + "/");
+        ordered.addAll(repositories);
+        return new ArrayList<>(ordered);
+    }
+
+    private synchronized boolean isKnownMissing(String repository, String path) {
+        Long expires = missing.get(repository + " " + path);
+        if (expires == null)
+            return false;
+        if (expires > System.currentTimeMillis())
+            return true;
+        missing.remove(repository + " " + path);
+        dirty = true;
+        return false;
+    }
+
+    private synchronized void recordServed(String path, String repository) {
+        if (!repository.equals(served.put(path, repository)))
+            dirty = true;
+        if (missing.remove(repository + " " + path) != null)
+            dirty = true;
+    }
+
+    private synchronized void recordMissing(String repository, String path) {
+        missing.put(repository + " " + path, System.currentTimeMillis() + NEGATIVE_TTL_MILLIS);
+        dirty = true;
+    }
+
+    public synchronized void save() throws IOException {
+        if (!dirty)
+            return;
+        long now = System.currentTimeMillis();
+        StringBuilder sb = new StringBuilder();
+        sb.append(FORMAT).append('\n');
+        for (Map.Entry<String, String> e : served.entrySet()) {
+            sb.append("served ").append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Long> e : missing.entrySet()) {
+            if (e.getValue() > now)
+                sb.append("missing ").append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+
+        stateFile.getParentFile().mkdirs();
+        Path temp = Files.createTempFile(stateFile.getParentFile().toPath(), stateFile.getName(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(sb.toString());
+            }
+            DownloadEngine.commit(temp, stateFile.toPath());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        dirty = false;
+    }
+
+    private void load() throws IOException {
+        if (loaded)
+            return;
+        loaded = true;
+        if (!stateFile.isFile())
+            return;
+
+        try (BufferedReader reader = Files.newBufferedReader(stateFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!FORMAT.equals(reader.readLine()))
+                return; // Unknown format, start over
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length == 3 && parts[0].equals("served")) {
+                    served.put(parts[1], parts[2]);
+                } else if (parts.length == 4 && parts[0].equals("missing")) {
+                    try {
+                        missing.put(parts[1] + " " + parts[2], Long.parseLong(parts[3]));
+                    } catch (NumberFormatException e) {
+                        // Skip damaged lines; the repository is simply asked again
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.launcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An ordered list of equivalent base URLs for one kind of artifact. A URL
+ * under any of the bases can be fetched from every other base by swapping the
+ * prefix, so only hosts that serve identical content belong in one set.
+ * Different Maven repositories (Mojang's, Maven Central, Forge, NeoForged)
+ * host different artifacts and are searched by {@link MavenResolver}
+ * instead.
+ *
+ * Each mirror keeps a moving average of its time to first response, and
+ * failures add a penalty that decays as later requests succeed.
+ * {@link #candidates(String)} tries the URL's own mirror first unless it has
+ * measured clearly worse than another one, then the rest fastest first.
+ *
+ * Mirrors of the asset server and of {@code libraries.minecraft.net} can be
+ * appended with {@code -Dlauncher.mirrors.assets} and
+ * {@code -Dlauncher.mirrors.maven} (comma-separated base URLs).
+ */
+public class MirrorSet {
+    public static final MirrorSet ASSETS = new MirrorSet("assets",
+            withExtras("launcher.mirrors.assets",
+                    "https://resources.download.minecraft.net/"));
+    public static final MirrorSet MAVEN = new MirrorSet("maven",
+            withExtras("launcher.mirrors.maven",
+                    "https://libraries.minecraft.net/"));
+
+    private static final List<MirrorSet> ALL = new CopyOnWriteArrayList<>(List.of(ASSETS, MAVEN));
+
+    /** Moving average weight of a new sample. */
+    private static final double ALPHA = 0.3;
+    /** Added to a mirror's score for each failure, in nanoseconds. */
+    private static final double FAILURE_PENALTY = 2e9;
+    /** The origin mirror keeps first place until it is this much slower than the best. */
+    private static final double SWITCH_MARGIN = 250e6;
+
+    private final String name;
+    private final List<Mirror> mirrors = new ArrayList<>();
+
+    public MirrorSet(String name, List<String> bases) {
+        this.name = name;
+        for (String base : bases) {
+            mirrors.add(new Mirror(base.endsWith("/") ? base : base + "/"));
+        }
+    }
+
+    private static List<String> withExtras(String property, String... defaults) {
+        List<String> bases = new ArrayList<>(Arrays.asList(defaults));
+        String extra = System.getProperty(property);
+        if (extra != null) {
+            for (String base : extra.split(",")) {
+                if (!base.isBlank())
+                    bases.add(base.trim());
+            }
+        }
+        return bases;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Makes {@code set} known to {@link #forUrl(String)}, so URLs under its
+     * bases fail over and are measured like the built-in ones.
+     */
+    static void register(MirrorSet set) {
+        ALL.add(set);
+    }
+
+    static void unregister(MirrorSet set) {
+        ALL.remove(set);
+    }
+
+    /**
+     * Returns the mirror set {@code url} belongs to, or null if none.
+     */
+    public static MirrorSet forUrl(String url) {
+        for (MirrorSet set : ALL) {
+            if (set.find(url) != null)
+                return set;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the URLs to try for {@code url}, best first. A URL outside this set
+     * is returned alone.
+     */
+    public List<String> candidates(String url) {
+        Mirror origin = find(url);
+        if (origin == null)
+            return List.of(url);
+        String path = url.substring(origin.base.length());
+
+        List<Mirror> ordered;
+        synchronized (this) {
+            ordered = new ArrayList<>(mirrors);
+            ordered.remove(origin);
+            ordered.sort(Comparator.comparingDouble(m -> m.score));
+            // An unmeasured origin keeps first place; an unmeasured fallback never jumps ahead
+            if (ordered.isEmpty() || origin.isUntried() || origin.score <= ordered.get(0).score + SWITCH_MARGIN)
+                ordered.add(0, origin);
+            else
+                ordered.add(1, origin);
+        }
+
+        List<String> urls = new ArrayList<>(ordered.size());
+        for (Mirror mirror : ordered) {
+            urls.add(mirror.base + path);
+        }
+        return urls;
+    }
+
+    /**
+     * Records the time it took {@code url}'s mirror to start responding.
+     */
+    public static void recordLatency(String url, long nanos) {
+        MirrorSet set = forUrl(url);
+        if (set != null)
+            set.update(url, nanos, false);
+    }
+
+    /**
+     * Records a connect failure, timeout, stall or server error for
+     * {@code url}'s mirror. A missing file (404, 410) says nothing about the
+     * mirror's health and must not be recorded.
+     */
+    public static void recordFailure(String url) {
+        MirrorSet set = forUrl(url);
+        if (set != null)
+            set.update(url, 0, true);
+    }
+
+    private synchronized void update(String url, long nanos, boolean failed) {
+        Mirror mirror = find(url);
+        if (mirror == null)
+            return;
+        if (failed) {
+            mirror.penalty += FAILURE_PENALTY;
+        } else {
+            mirror.latency = mirror.samples == 0 ? nanos : mirror.latency + ALPHA * (nanos - mirror.latency);
+            mirror.samples++;
+            mirror.penalty *= 1 - ALPHA;
+        }
+        mirror.score = mirror.samples == 0 ? Double.POSITIVE_INFINITY : mirror.latency + mirror.penalty;
+    }
+
+    private Mirror find(String url) {
+        for (Mirror mirror : mirrors) {
+            if (url.startsWith(mirror.base))
+                return mirror;
+        }
+        return null;
+    }
+
+    private static class Mirror {
+        final String base;
+        double latency;
+        double penalty;
+        double score = Double.POSITIVE_INFINITY;
+        int samples;
+
+        Mirror(String base) {
+            this.base = base;
+        }
+
+        boolean isUntried() {
+            return samples == 0 && penalty == 0;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.launcher.model.Library;
+
+/**
+ * Fills {@code ${natives_directory}} for versions whose libraries carry a
+ * {@code natives} map (LWJGL 2 era and up to 1.18).
+ *
+ * Each native jar is unpacked once into {@code natives/jars/<jar sha1>/},
+ * without {@code META-INF/}. A version's natives are then assembled from those
+ * with hard links (copies where links are not supported) into
+ * {@code natives/<set hash>/}, where the set hash covers every jar hash and
+ * {@code extract.exclude} rule. A launch whose set already exists unzips
+ * nothing, and a changed set only extracts the jars that changed.
+ *
+ * Newer versions list natives as plain classpath jars that LWJGL 3 loads on
+ * its own, so they are left alone.
+ */
+public class NativesManager {
+    private static final String COMPLETE_MARKER = ".complete";
+
+    private final File librariesDir;
+    private final File nativesDir;
+
+    public NativesManager(File workDir) {
+        this.librariesDir = new File(workDir, "libraries");
+        this.nativesDir = new File(workDir, "natives");
+    }
+
+    /**
+     * The native jar a library needs on this platform.
+     */
+    public static class NativeJar {
+        private final String name;
+        private final String path;
+        private final String url;
+        private final String sha1;
+        private final long size;
+        private final MavenCoordinate coordinate;
+        private final List<String> excludes;
+
+        NativeJar(String name, String path, String url, String sha1, long size, MavenCoordinate coordinate,
+                List<String> excludes) {
+            this.name = name;
+            this.path = path;
+            this.url = url;
+            this.sha1 = sha1;
+            this.size = size;
+            this.coordinate = coordinate;
+            this.excludes = excludes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Path relative to {@code libraries/}. */
+        public String getPath() {
+            return path;
+        }
+
+        /** Download URL, or null if the jar has to be resolved by coordinate. */
+        public String getUrl() {
+            return url;
+        }
+
+        public String getSha1() {
+            return sha1;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public MavenCoordinate getCoordinate() {
+            return coordinate;
+        }
+
+        public List<String> getExcludes() {
+            return excludes;
+        }
+    }
+
+    /**
+     * Picks the classifier jar of {@code lib} for the given platform, or null if
+     * the library has no natives for it. {@code ${arch}} in the classifier
+     * becomes 64 or 32.
+     */
+    public static NativeJar select(Library lib, String osName, String osArch) {
+        Map<String, String> natives = lib.getNatives();
+        if (natives == null || natives.get(osName) == null)
+            return null;
+        String classifier = natives.get(osName).replace("${arch}", osArch.contains("64") ? "64" : "32");
+        List<String> excludes = lib.getExtract() != null && lib.getExtract().getExclude() != null
+                ? lib.getExtract().getExclude()
+                : List.of();
+
+        if (lib.getDownloads() != null && lib.getDownloads().getClassifiers() != null) {
+            Library.Artifact artifact = lib.getDownloads().getClassifiers().get(classifier);
+            if (artifact != null)
+                return new NativeJar(lib.getName() + ":" + classifier, artifact.getPath(), artifact.getUrl(),
+                        artifact.getSha1(), artifact.getSize() > 0 ? artifact.getSize() : -1, null, excludes);
+        }
+        if (lib.getName() == null)
+            return null;
+        MavenCoordinate base = MavenCoordinate.parse(lib.getName());
+        MavenCoordinate coordinate = new MavenCoordinate(base.getGroup(), base.getArtifact(), base.getVersion(),
+                classifier, "jar");
+        return new NativeJar(coordinate.toString(), coordinate.getPath(), null, null, -1, coordinate, excludes);
+    }
+
+    /**
+     * True if the library is only a carrier for natives and has no jar of its
+     * own for the classpath.
+     */
+    public static boolean isNativesOnly(Library lib) {
+        return lib.getNatives() != null
+                && (lib.getDownloads() == null || lib.getDownloads().getArtifact() == null);
+    }
+
+    /**
+     * Makes sure the native jars of {@code plan} are extracted and returns the
+     * directory to use as {@code ${natives_directory}}.
+     */
+    public File prepare(String versionId, LibraryPlan plan) throws IOException {
+        List<LibraryPlan.Entry> jars = plan.getNatives();
+        if (jars.isEmpty())
+            return nativesDir;
+
+        // Hash every jar once; the set hash and the per-jar cache both use it
+        List<String> hashes = new ArrayList<>(jars.size());
+        MessageDigest setDigest = Hashing.newSha1();
+        for (LibraryPlan.Entry jar : jars) {
+            File file = jar.file(librariesDir);
+            if (!file.isFile())
+                throw new IOException("Native library " + jar.getName() + " is missing: " + file);
+            String hash = jar.getSha1() != null ? jar.getSha1().toLowerCase() : Hashing.sha1(file);
+            hashes.add(hash);
+            setDigest.update((hash + " " + String.join(",", jar.getExclude()) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+
+        File setDir = new File(nativesDir, Hashing.toHex(setDigest.digest()));
+        if (new File(setDir, COMPLETE_MARKER).isFile())
+            return setDir;
+
+        System.out.println("Extracting natives for " + versionId + "...");
+        nativesDir.mkdirs();
+        Path temp = Files.createTempDirectory(nativesDir.toPath(), setDir.getName() + ".tmp");
+        try {
+            for (int i = 0; i < jars.size(); i++) {
+                File extracted = extractJar(jars.get(i).file(librariesDir), hashes.get(i));
+                linkAll(extracted.toPath(), temp, jars.get(i).getExclude());
+            }
+            Files.createFile(temp.resolve(COMPLETE_MARKER));
+            publish(temp, setDir.toPath());
+        } finally {
+            deleteRecursively(temp);
+        }
+        return setDir;
+    }
+
+    /**
+     * Unpacks {@code jar} into the per-jar cache unless it is already there.
+     */
+    private File extractJar(File jar, String hash) throws IOException {
+        File dir = new File(nativesDir, "jars/" + hash);
+        if (new File(dir, COMPLETE_MARKER).isFile())
+            return dir;
+
+        dir.getParentFile().mkdirs();
+        Path temp = Files.createTempDirectory(dir.getParentFile().toPath(), hash + ".tmp");
+        try {
+            try (ZipFile zip = new ZipFile(jar)) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || entry.getName().startsWith("META-INF/"))
+                        continue;
+                    Path out = temp.resolve(entry.getName()).normalize();
+                    if (!out.startsWith(temp))
+                        throw new IOException("Refusing to extract " + entry.getName() + " from " + jar.getName());
+                    Files.createDirectories(out.getParent());
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        Files.copy(in, out);
+                    }
+                }
+            }
+            Files.createFile(temp.resolve(COMPLETE_MARKER));
+            publish(temp, dir.toPath());
+        } finally {
+            deleteRecursively(temp);
+        }
+        return dir;
+    }
+
+    /**
+     * Links every file under {@code source} into {@code target}, skipping
+     * excluded paths and names an earlier jar already provided.
+     */
+    private static void linkAll(Path source, Path target, List<String> excludes) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(source)) {
+            files = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            String relative = source.relativize(file).toString().replace(File.separatorChar, '/');
+            if (relative.equals(COMPLETE_MARKER) || isExcluded(relative, excludes))
+                continue;
+            Path out = target.resolve(relative);
+            if (Files.exists(out))
+                continue;
+            Files.createDirectories(out.getParent());
+            try {
+                Files.createLink(out, file);
+            } catch (UnsupportedOperationException | IOException e) {
+                // Different volume or no hard link support; copy instead
+                Files.copy(file, out);
+            }
+        }
+    }
+
+    private static boolean isExcluded(String path, List<String> excludes) {
+        for (String exclude : excludes) {
+            if (path.startsWith(exclude))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves a fully built directory into place. If another launcher instance
+     * published the same content first, its copy is kept.
+     */
+    private static void publish(Path temp, Path target) throws IOException {
+        if (Files.isDirectory(target) && !Files.exists(target.resolve(COMPLETE_MARKER)))
+            deleteRecursively(target); // Left over from an older launcher; rebuild
+        try {
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            }
+        } catch (IOException e) {
+            // Lost the race (already exists, or a non-empty target on some platforms)
+            if (!Files.exists(target.resolve(COMPLETE_MARKER)))
+                throw e;
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (!Files.exists(root))
+            return;
+        try (Stream<Path> walk = Files.walk(root)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -2,10 +2,7 @@ package com.launcher;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
 
 import com.launcher.service.VersionInstaller;
 
@@ -83,8 +80,6 @@ public class NeoForgeManager implements VersionInstaller {
     }
 
     private void downloadFile(String urlStr, File target) throws IOException {
-        try (InputStream in = new URL(urlStr).openStream()) {
-            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        DownloadEngine.shared().downloadResumable(urlStr, target, null, -1);
     }
 }
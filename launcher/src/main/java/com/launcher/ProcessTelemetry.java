@@ -0,0 +1,450 @@
+package com.launcher;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import com.sun.tools.attach.VirtualMachine;
+
+/**
+ * Samples the running game once per interval: CPU time, resident memory and
+ * thread count of the process (from {@code /proc/<pid>} on Linux, CPU only
+ * elsewhere), plus heap use and GC pauses from the game JVM's own MXBeans,
+ * reached by attaching and starting its local management agent.
+ *
+ * Samples are kept as a bounded time series, passed to listeners and appended
+ * to a CSV file. Each sample names the likely cause of lag, if any: GC,
+ * memory or CPU. The game does most of its work on one thread, so CPU counts
+ * as the limit once its busiest thread keeps a core busy (per-thread times
+ * come from {@code /proc/<pid>/task} on Linux, from JMX elsewhere), or when
+ * every core is busy.
+ *
+ * {@code -Dlauncher.telemetry.intervalMs} (default 1000) sets the interval,
+ * {@code -Dlauncher.telemetry.jmx=false} skips attaching.
+ */
+public class ProcessTelemetry {
+    private static final long INTERVAL_MILLIS = Long.getLong("launcher.telemetry.intervalMs", 1000);
+    private static final boolean USE_JMX = Boolean.parseBoolean(System.getProperty("launcher.telemetry.jmx", "true"));
+    /** Kernel clock ticks per second for /proc CPU times; 100 on practically every Linux build. */
+    private static final long CLOCK_TICKS = Long.getLong("launcher.telemetry.clockTicks", 100);
+    private static final int MAX_SAMPLES = 3600;
+    /** The game JVM needs a moment before it accepts an attach. */
+    private static final long ATTACH_DELAY_MILLIS = 3000;
+
+    private final ProcessHandle process;
+    private final File csvFile;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private final long startNanos = System.nanoTime();
+
+    private ScheduledExecutorService scheduler;
+    private BufferedWriter csv;
+    private JMXConnector connector;
+    private MemoryMXBean memory;
+    private List<GarbageCollectorMXBean> pauseCollectors;
+    private com.sun.management.ThreadMXBean threadBean;
+    private boolean attachFailed;
+
+    private long lastCpuNanos = -1;
+    private long lastSampleNanos;
+    private long lastGcMillis = -1;
+    private long lastGcCount;
+    /** CPU time per thread id at the last sample, in nanoseconds. */
+    private Map<Long, Long> lastThreadCpu = new HashMap<>();
+
+    /**
+     * One point of the time series. Values that could not be read are -1.
+     */
+    public static final class Sample {
+        private long uptimeMillis;
+        private double cpuPercent = -1;
+        private double busiestThreadPercent = -1;
+        private long rssBytes = -1;
+        private int threads = -1;
+        private long heapUsed = -1;
+        private long heapMax = -1;
+        private long gcPauseMillis = -1;
+        private long gcCount = -1;
+        private String bottleneck;
+
+        public long getUptimeMillis() {
+            return uptimeMillis;
+        }
+
+        /** CPU use over the interval, 100 per fully used core. */
+        public double getCpuPercent() {
+            return cpuPercent;
+        }
+
+        /** CPU use of the busiest thread over the interval, 100 when it keeps one core busy. */
+        public double getBusiestThreadPercent() {
+            return busiestThreadPercent;
+        }
+
+        public long getRssBytes() {
+            return rssBytes;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public long getHeapUsed() {
+            return heapUsed;
+        }
+
+        public long getHeapMax() {
+            return heapMax;
+        }
+
+        /** Time spent in GC pauses during the interval. */
+        public long getGcPauseMillis() {
+            return gcPauseMillis;
+        }
+
+        /** GC pauses during the interval. */
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        /** "GC", "memory", "CPU", or null if nothing stands out. */
+        public String getBottleneck() {
+            return bottleneck;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            if (cpuPercent >= 0)
+                sb.append(String.format("CPU %.0f%%", cpuPercent));
+            if (busiestThreadPercent >= 0)
+                sb.append(String.format(" (busiest thread %.0f%%)", busiestThreadPercent));
+            if (rssBytes >= 0)
+                sb.append(" | RSS ").append(rssBytes / (1024 * 1024)).append(" MB");
+            if (heapUsed >= 0)
+                sb.append(" | Heap ").append(heapUsed / (1024 * 1024)).append('/')
+                        .append(heapMax / (1024 * 1024)).append(" MB");
+            if (gcPauseMillis >= 0)
+                sb.append(" | GC ").append(gcPauseMillis).append(" ms");
+            if (threads >= 0)
+                sb.append(" | ").append(threads).append(" threads");
+            if (bottleneck != null)
+                sb.append(" | lag: ").append(bottleneck);
+            return sb.toString();
+        }
+    }
+
+    public interface Listener {
+        void onSample(Sample sample);
+    }
+
+    /**
+     * @param csvFile where to append samples, or null
+     */
+    public ProcessTelemetry(ProcessHandle process, File csvFile) {
+        this.process = process;
+        this.csvFile = csvFile;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(LauncherThreads.daemonFactory("telemetry"));
+        lastSampleNanos = System.nanoTime();
+        scheduler.scheduleAtFixedRate(this::sampleSafely, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        if (scheduler == null)
+            return;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeConnection();
+        try {
+            if (csv != null)
+                csv.close();
+        } catch (IOException e) {
+            System.err.println("Could not close " + csvFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The samples so far, oldest first (at most the last hour at the default
+     * interval).
+     */
+    public synchronized List<Sample> getSamples() {
+        return new ArrayList<>(samples);
+    }
+
+    private void sampleSafely() {
+        if (!process.isAlive())
+            return;
+        try {
+            Sample sample = sample();
+            synchronized (this) {
+                if (samples.size() == MAX_SAMPLES)
+                    samples.removeFirst();
+                samples.addLast(sample);
+            }
+            writeCsv(sample);
+            for (Listener listener : listeners) {
+                listener.onSample(sample);
+            }
+        } catch (RuntimeException e) {
+            // Keep sampling; a single bad read must not end the series
+            System.err.println("Telemetry sample failed: " + e);
+        }
+    }
+
+    private Sample sample() {
+        Sample sample = new Sample();
+        long now = System.nanoTime();
+        sample.uptimeMillis = (now - startNanos) / 1_000_000;
+
+        long elapsed = now - lastSampleNanos;
+        long cpuNanos = readProc(sample, elapsed);
+        if (cpuNanos < 0)
+            cpuNanos = process.info().totalCpuDuration().map(Duration::toNanos).orElse(-1L);
+        if (cpuNanos >= 0 && lastCpuNanos >= 0)
+            sample.cpuPercent = 100.0 * (cpuNanos - lastCpuNanos) / elapsed;
+        lastCpuNanos = cpuNanos;
+        lastSampleNanos = now;
+
+        readJmx(sample, elapsed);
+        sample.bottleneck = diagnose(sample);
+        return sample;
+    }
+
+    /**
+     * Fills RSS, threads and the busiest thread from /proc and returns the CPU
+     * time in nanoseconds, or -1 where /proc is not available.
+     */
+    private long readProc(Sample sample, long elapsedNanos) {
+        File procDir = new File("/proc/" + process.pid());
+        if (!procDir.isDirectory())
+            return -1;
+        try {
+            String stat = Files.readString(new File(procDir, "stat").toPath(), StandardCharsets.US_ASCII);
+            // The command name may contain spaces; fields are counted after its closing parenthesis
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]); // utime + stime
+            sample.threads = Integer.parseInt(fields[17]);
+
+            for (String line : Files.readAllLines(new File(procDir, "status").toPath(), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmRSS:")) {
+                    sample.rssBytes = Long.parseLong(line.substring(6).trim().split("\\s+")[0]) * 1024;
+                    break;
+                }
+            }
+            sample.busiestThreadPercent = busiestThread(readTaskCpu(procDir), elapsedNanos);
+            return ticks * 1_000_000_000L / CLOCK_TICKS;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * CPU time of each thread of the process from
+     * {@code /proc/<pid>/task/<tid>/stat}, in nanoseconds.
+     */
+    private static Map<Long, Long> readTaskCpu(File procDir) {
+        Map<Long, Long> cpu = new HashMap<>();
+        File[] tasks = new File(procDir, "task").listFiles();
+        if (tasks == null)
+            return cpu;
+        for (File task : tasks) {
+            try {
+                String stat = Files.readString(new File(task, "stat").toPath(), StandardCharsets.US_ASCII);
+                String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+                long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+                cpu.put(Long.parseLong(task.getName()), ticks * 1_000_000_000L / CLOCK_TICKS);
+            } catch (IOException | RuntimeException e) {
+                // The thread ended between listing and reading
+            }
+        }
+        return cpu;
+    }
+
+    /**
+     * Returns the highest CPU use of any thread since the previous call, in
+     * percent of one core, and keeps {@code cpu} for the next one. Threads that
+     * started in between are skipped. Returns -1 for the first call or without
+     * per-thread times.
+     */
+    private double busiestThread(Map<Long, Long> cpu, long elapsedNanos) {
+        if (cpu.isEmpty())
+            return -1;
+        long busiest = -1;
+        for (Map.Entry<Long, Long> thread : cpu.entrySet()) {
+            Long last = lastThreadCpu.get(thread.getKey());
+            if (last != null)
+                busiest = Math.max(busiest, thread.getValue() - last);
+        }
+        lastThreadCpu = cpu;
+        return busiest >= 0 ? 100.0 * busiest / elapsedNanos : -1;
+    }
+
+    private void readJmx(Sample sample, long elapsedNanos) {
+        if (!connect())
+            return;
+        try {
+            MemoryUsage heap = memory.getHeapMemoryUsage();
+            sample.heapUsed = heap.getUsed();
+            sample.heapMax = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+
+            long gcMillis = 0;
+            long gcCount = 0;
+            for (GarbageCollectorMXBean collector : pauseCollectors) {
+                gcMillis += Math.max(0, collector.getCollectionTime());
+                gcCount += Math.max(0, collector.getCollectionCount());
+            }
+            if (lastGcMillis >= 0) {
+                sample.gcPauseMillis = gcMillis - lastGcMillis;
+                sample.gcCount = gcCount - lastGcCount;
+            }
+            lastGcMillis = gcMillis;
+            lastGcCount = gcCount;
+
+            // Without /proc, take per-thread times from the game JVM (Java threads only)
+            if (sample.busiestThreadPercent < 0 && threadBean.isThreadCpuTimeEnabled()) {
+                long[] ids = threadBean.getAllThreadIds();
+                long[] times = threadBean.getThreadCpuTime(ids);
+                Map<Long, Long> cpu = new HashMap<>();
+                for (int i = 0; i < ids.length; i++) {
+                    if (times[i] >= 0)
+                        cpu.put(ids[i], times[i]);
+                }
+                sample.busiestThreadPercent = busiestThread(cpu, elapsedNanos);
+            }
+        } catch (RuntimeException e) {
+            // Connection lost, usually because the game is exiting
+            closeConnection();
+            attachFailed = true;
+        }
+    }
+
+    /**
+     * Attaches to the game JVM once, after it had time to start.
+     */
+    private boolean connect() {
+        if (memory != null)
+            return true;
+        if (!USE_JMX || attachFailed || (System.nanoTime() - startNanos) / 1_000_000 < ATTACH_DELAY_MILLIS)
+            return false;
+        try {
+            VirtualMachine vm = VirtualMachine.attach(Long.toString(process.pid()));
+            String address;
+            try {
+                address = vm.startLocalManagementAgent();
+            } finally {
+                vm.detach();
+            }
+            connector = JMXConnectorFactory.connect(new JMXServiceURL(address));
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+            memory = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.MEMORY_MXBEAN_NAME,
+                    MemoryMXBean.class);
+            threadBean = ManagementFactory.newPlatformMXBeanProxy(connection, ManagementFactory.THREAD_MXBEAN_NAME,
+                    com.sun.management.ThreadMXBean.class);
+
+            // Concurrent cycles (ZGC Cycles, G1 Concurrent GC) do not stop the game
+            pauseCollectors = new ArrayList<>();
+            Set<ObjectName> names = connection.queryNames(
+                    new ObjectName(ManagementFactory.GARBAGE_COLLECTOR_MXBEAN_DOMAIN_TYPE + ",*"), null);
+            for (ObjectName name : names) {
+                String collector = name.getKeyProperty("name");
+                if (collector.contains("Cycles") || collector.contains("Concurrent"))
+                    continue;
+                pauseCollectors.add(ManagementFactory.newPlatformMXBeanProxy(connection, name.toString(),
+                        GarbageCollectorMXBean.class));
+            }
+            return true;
+        } catch (Exception | LinkageError e) {
+            // No attach support in this runtime, attach disabled in the game, or a different user
+            System.out.println("Telemetry without heap/GC data: " + e);
+            attachFailed = true;
+            closeConnection();
+            return false;
+        }
+    }
+
+    /**
+     * Names what most likely limits the game in this sample.
+     */
+    private String diagnose(Sample sample) {
+        if (sample.gcPauseMillis >= 0 && sample.gcPauseMillis * 10 > INTERVAL_MILLIS)
+            return "GC"; // More than 10% of the time paused
+        if (sample.heapUsed >= 0 && sample.heapMax > 0 && sample.heapUsed * 10 > sample.heapMax * 9)
+            return "memory";
+        if (sample.busiestThreadPercent > 90.0)
+            return "CPU"; // The render or server thread has a core to itself and still wants more
+        if (sample.cpuPercent >= 0 && sample.cpuPercent > 90.0 * cores)
+            return "CPU";
+        return null;
+    }
+
+    private void writeCsv(Sample sample) {
+        if (csvFile == null)
+            return;
+        try {
+            if (csv == null) {
+                csvFile.getParentFile().mkdirs();
+                csv = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8);
+                csv.write("uptime_ms,cpu_percent,busiest_thread_percent,rss_bytes,threads,heap_used,heap_max,"
+                        + "gc_pause_ms,gc_count,bottleneck");
+                csv.newLine();
+            }
+            csv.write(sample.uptimeMillis + ","
+                    + String.format(Locale.ROOT, "%.1f,%.1f", sample.cpuPercent, sample.busiestThreadPercent) + ","
+                    + sample.rssBytes + "," + sample.threads + "," + sample.heapUsed + "," + sample.heapMax + ","
+                    + sample.gcPauseMillis + "," + sample.gcCount + ","
+                    + (sample.bottleneck != null ? sample.bottleneck : ""));
+            csv.newLine();
+            csv.flush();
+        } catch (IOException e) {
+            System.err.println("Could not write telemetry to " + csvFile + ": " + e.getMessage());
+        }
+    }
+
+    private void closeConnection() {
+        try {
+            if (connector != null)
+                connector.close();
+        } catch (IOException e) {
+            // Already gone with the game
+        }
+        connector = null;
+        memory = null;
+        threadBean = null;
+    }
+}
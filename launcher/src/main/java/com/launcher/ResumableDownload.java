@@ -0,0 +1,353 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A download that keeps its progress in {@code <target>.part} plus a
+ * {@code <target>.part.meta} properties file, so an interrupted transfer is
+ * topped up with {@code Range} requests instead of restarting from byte 0.
+ *
+ * Resumes are guarded with {@code If-Range} (strong ETag, else Last-Modified);
+ * if the server answers 200 the resource changed and the part is discarded.
+ * Artifacts of at least {@link #SEGMENT_THRESHOLD} bytes on servers that
+ * accept ranges are split into parallel segments, each resumable on its own.
+ * The part is hashed once it is complete, then renamed into place.
+ */
+class ResumableDownload {
+    static final long SEGMENT_THRESHOLD = 16L * 1024 * 1024;
+    private static final long SAVE_INTERVAL = 4L * 1024 * 1024;
+    private static final int SEGMENTS = Integer.getInteger("launcher.download.segments", 4);
+
+    private final DownloadEngine engine;
+    private final URI uri;
+    private final File target;
+    private final String sha1;
+    private final long size;
+    private final Path part;
+    private final Path meta;
+    private final String group;
+    private final String[] headers;
+
+    // Persisted state
+    private String validator;
+    private long[] starts;
+    private long[] ends; // Inclusive, -1 when the length is unknown
+    private long[] done;
+
+    ResumableDownload(DownloadEngine engine, String url, File target, String sha1, long size, String[] headers) {
+        this.engine = engine;
+        this.uri = URI.create(url);
+        this.target = target.getAbsoluteFile();
+        this.sha1 = sha1;
+        this.size = size;
+        this.part = new File(this.target.getPath() + ".part").toPath();
+        this.meta = new File(this.target.getPath() + ".part.meta").toPath();
+        // Captured here because segments run on their own threads
+        this.group = DownloadEngine.currentGroup();
+        this.headers = headers;
+    }
+
+    void run() throws IOException {
+        target.getParentFile().mkdirs();
+
+        FetchPolicy policy = engine.policy();
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= policy.getMaxAttempts(); attempt++) {
+            if (attempt > 1)
+                policy.backoff(attempt - 1);
+            try {
+                if (!loadState()) {
+                    discard();
+                    plan();
+                }
+                fetchSegments();
+
+                long actualSize = Files.size(part);
+                if (size >= 0 && actualSize != size) {
+                    lastError = new IOException("Size mismatch for " + uri + ": expected " + size + ", got "
+                            + actualSize);
+                } else if (sha1 != null && !sha1.isEmpty() && !sha1.equalsIgnoreCase(Hashing.sha1(part.toFile()))) {
+                    lastError = new IOException("SHA-1 mismatch for " + uri);
+                } else {
+                    DownloadEngine.commit(part, target.toPath());
+                    Files.deleteIfExists(meta);
+                    return;
+                }
+                // Corrupt result: the partial data cannot be trusted either
+                discard();
+            } catch (StaleException e) {
+                lastError = e;
+                discard();
+            } catch (DownloadEngine.HttpStatusException e) {
+                if (e.getStatusCode() == 416) {
+                    // The part claims more than the server has: it cannot be resumed
+                    lastError = e;
+                    discard();
+                } else if (!e.isRetryable()) {
+                    throw e;
+                } else {
+                    lastError = e;
+                }
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted())
+                    throw e;
+                // Keep the part; the next attempt (or launch) resumes from it
+                lastError = e;
+            }
+            System.err.println(lastError.getMessage() + " (attempt " + attempt + "/" + policy.getMaxAttempts()
+                    + ")");
+        }
+        throw lastError;
+    }
+
+    /**
+     * Loads the saved progress for this URL. Returns false when there is nothing
+     * usable to resume.
+     */
+    private boolean loadState() throws IOException {
+        if (!Files.isRegularFile(part) || !Files.isRegularFile(meta))
+            return false;
+
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+            props.load(reader);
+        }
+        if (!uri.toString().equals(props.getProperty("url")))
+            return false;
+
+        try {
+            int count = Integer.parseInt(props.getProperty("segments", "0"));
+            if (count < 1)
+                return false;
+            validator = props.getProperty("validator");
+            starts = new long[count];
+            ends = new long[count];
+            done = new long[count];
+            for (int i = 0; i < count; i++) {
+                starts[i] = Long.parseLong(props.getProperty("segment." + i + ".start"));
+                ends[i] = Long.parseLong(props.getProperty("segment." + i + ".end"));
+                done[i] = Long.parseLong(props.getProperty("segment." + i + ".done"));
+            }
+        } catch (NumberFormatException | NullPointerException e) {
+            return false;
+        }
+
+        // A single unbounded stream is appended in order, so the file length is the truth
+        if (done.length == 1)
+            done[0] = Files.size(part);
+        else if (Files.size(part) != ends[ends.length - 1] + 1)
+            return false;
+        // Without a validator a resumed range could splice two versions together
+        return validator != null || isUntouched();
+    }
+
+    private boolean isUntouched() {
+        for (long d : done) {
+            if (d > 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Decides between one stream and parallel segments for a fresh download.
+     */
+    private void plan() throws IOException {
+        long length = size;
+        if (SEGMENTS > 1 && size >= SEGMENT_THRESHOLD) {
+            HttpResponse<InputStream> response = engine.head(uri, headers);
+            validator = validatorOf(response);
+            boolean ranges = response.headers().firstValue("Accept-Ranges").map("bytes"::equalsIgnoreCase)
+                    .orElse(false);
+            if (ranges && validator != null) {
+                length = response.headers().firstValueAsLong("Content-Length").orElse(size);
+                long segmentSize = (length + SEGMENTS - 1) / SEGMENTS;
+                starts = new long[SEGMENTS];
+                ends = new long[SEGMENTS];
+                done = new long[SEGMENTS];
+                for (int i = 0; i < SEGMENTS; i++) {
+                    starts[i] = i * segmentSize;
+                    ends[i] = Math.min(length, (i + 1) * segmentSize) - 1;
+                }
+                // Preallocate: FileChannel.transferFrom writes nothing past the current end of file
+                try (RandomAccessFile out = new RandomAccessFile(part.toFile(), "rw")) {
+                    out.setLength(0);
+                    out.setLength(length);
+                }
+                saveState();
+                return;
+            }
+        }
+
+        starts = new long[] { 0 };
+        ends = new long[] { -1 };
+        done = new long[] { 0 };
+        Files.write(part, new byte[0]);
+        saveState();
+    }
+
+    private void fetchSegments() throws IOException {
+        if (starts.length == 1) {
+            fetchSegment(0);
+            return;
+        }
+
+        ExecutorService executor = LauncherThreads.newPerTaskExecutor("segment");
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < starts.length; i++) {
+                int segment = i;
+                futures.add(executor.submit(() -> {
+                    fetchSegment(segment);
+                    return null;
+                }));
+            }
+            IOException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        if (failure == null || e.getCause() instanceof StaleException)
+                            failure = (IOException) e.getCause();
+                    } else if (failure == null) {
+                        failure = new IOException("Segment failed for " + uri, e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while downloading " + uri, e);
+                }
+            }
+            if (failure != null)
+                throw failure;
+        } finally {
+            executor.shutdown();
+            saveState();
+        }
+    }
+
+    private void fetchSegment(int i) throws IOException {
+        long from = starts[i] + done[i];
+        if (ends[i] >= 0 && from > ends[i])
+            return; // Already complete
+        if (starts.length == 1 && size >= 0 && from >= size)
+            return; // Complete but not committed yet; the size and hash checks decide
+
+        List<String> request = new ArrayList<>(List.of(headers));
+        boolean ranged = from > 0 || starts.length > 1;
+        if (ranged) {
+            request.add("Range");
+            request.add("bytes=" + from + "-" + (ends[i] >= 0 ? String.valueOf(ends[i]) : ""));
+            if (validator != null) {
+                request.add("If-Range");
+                request.add(validator);
+            }
+        }
+
+        BandwidthLimiter limiter = BandwidthLimiter.shared();
+        Semaphore permit = engine.acquire(uri);
+        limiter.begin(group);
+        try {
+            HttpResponse<InputStream> response = engine.open(uri, request.toArray(new String[0]));
+            try (InputStream in = response.body();
+                    ReadableByteChannel src = limiter.throttle(
+                            engine.policy().guard(in, Channels.newChannel(in), uri.toString()), group);
+                    FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                if (ranged && response.statusCode() != 206) {
+                    if (starts.length > 1)
+                        throw new StaleException("Server ignored range for " + uri + ", restarting");
+                    // Single stream: the resource changed (If-Range failed), start over from byte 0
+                    System.out.println("Remote file changed, restarting " + target.getName());
+                    out.truncate(0);
+                    done[i] = 0;
+                }
+                if (done[i] == 0 && starts.length == 1) {
+                    validator = validatorOf(response);
+                    saveState();
+                }
+
+                long sinceSave = 0;
+                long transferred;
+                while ((transferred = out.transferFrom(src, starts[i] + done[i], 1L << 20)) > 0) {
+                    done[i] += transferred;
+                    sinceSave += transferred;
+                    if (sinceSave >= SAVE_INTERVAL) {
+                        saveState();
+                        sinceSave = 0;
+                    }
+                }
+            }
+        } finally {
+            limiter.end(group);
+            permit.release();
+        }
+
+        if (ends[i] >= 0 && starts[i] + done[i] <= ends[i])
+            throw new IOException("Segment " + i + " of " + uri + " ended early");
+    }
+
+    private synchronized void saveState() throws IOException {
+        Properties props = new Properties();
+        props.setProperty("url", uri.toString());
+        if (validator != null)
+            props.setProperty("validator", validator);
+        props.setProperty("segments", String.valueOf(starts.length));
+        for (int i = 0; i < starts.length; i++) {
+            props.setProperty("segment." + i + ".start", String.valueOf(starts[i]));
+            props.setProperty("segment." + i + ".end", String.valueOf(ends[i]));
+            props.setProperty("segment." + i + ".done", String.valueOf(done[i]));
+        }
+        Path temp = Files.createTempFile(meta.getParent(), meta.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                props.store(out, null);
+            }
+            DownloadEngine.commit(temp, meta);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void discard() throws IOException {
+        Files.deleteIfExists(part);
+        Files.deleteIfExists(meta);
+        validator = null;
+    }
+
+    /**
+     * Strong ETag if present (weak ones are not valid for If-Range), otherwise
+     * Last-Modified.
+     */
+    private static String validatorOf(HttpResponse<?> response) {
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        if (etag != null && !etag.startsWith("W/"))
+            return etag;
+        return response.headers().firstValue("Last-Modified").orElse(null);
+    }
+
+    private static class StaleException extends IOException {
+        StaleException(String message) {
+            super(message);
+        }
+    }
+}
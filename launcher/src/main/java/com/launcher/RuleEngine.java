@@ -0,0 +1,189 @@
+package com.launcher;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.launcher.model.Library;
+
+/**
+ * Evaluates the {@code rules} of libraries and arguments against one fixed
+ * environment: OS name, arch, OS version and the enabled features (such as
+ * {@code has_custom_resolution}).
+ *
+ * Rules are processed in order and the last one that matches decides; a rule
+ * list where nothing matches disallows, an empty or missing one allows. Since
+ * the environment never changes, each distinct rule list is evaluated once and
+ * its result cached. A version has hundreds of libraries and arguments but
+ * only a handful of distinct rule lists.
+ */
+public final class RuleEngine {
+    /** Engines per environment key, so the caches outlive a single launcher. */
+    private static final Map<String, RuleEngine> ENGINES = new ConcurrentHashMap<>();
+    private static final Gson GSON = new Gson();
+    private static final Type RULE_LIST = new TypeToken<List<Library.Rule>>() {
+    }.getType();
+
+    private final String osName;
+    private final String osArch;
+    private final String osVersion;
+    private final Set<String> features;
+    private final String key;
+    private final Map<String, Boolean> results = new ConcurrentHashMap<>();
+
+    private RuleEngine(String osName, String osArch, String osVersion, Set<String> features) {
+        this.osName = osName;
+        this.osArch = normalizeArch(osArch);
+        this.osVersion = osVersion != null ? osVersion : "";
+        this.features = Set.copyOf(features);
+        this.key = osName + " " + this.osArch + " " + this.osVersion + " " + new TreeSet<>(features);
+    }
+
+    /**
+     * The engine for the given environment. {@code osName} is the rule name
+     * ({@code windows}, {@code osx} or {@code linux}); {@code osArch} may be
+     * any {@code os.arch} value.
+     */
+    public static RuleEngine of(String osName, String osArch, String osVersion, Set<String> features) {
+        RuleEngine engine = new RuleEngine(osName, osArch, osVersion, features);
+        return ENGINES.computeIfAbsent(engine.key, k -> engine);
+    }
+
+    /**
+     * The engine for this machine with the given features enabled.
+     */
+    public static RuleEngine forCurrentSystem(Set<String> features) {
+        return of(currentOsName(), System.getProperty("os.arch"), System.getProperty("os.version"), features);
+    }
+
+    /** The rule name of this machine's OS: windows, osx or linux. */
+    public static String currentOsName() {
+        String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+        if (os.contains("win"))
+            return "windows";
+        if (os.contains("mac"))
+            return "osx";
+        return "linux";
+    }
+
+    /**
+     * Maps the spellings of {@code os.arch} and of rule files onto one name
+     * per arch: x86 (32 bit), x86_64, arm64 or arm32.
+     */
+    static String normalizeArch(String arch) {
+        if (arch == null)
+            return "";
+        switch (arch.toLowerCase(Locale.ROOT)) {
+            case "x86":
+            case "i386":
+            case "i486":
+            case "i586":
+            case "i686":
+                return "x86";
+            case "amd64":
+            case "x86_64":
+            case "x64":
+                return "x86_64";
+            case "aarch64":
+            case "arm64":
+                return "arm64";
+            case "arm":
+            case "arm32":
+                return "arm32";
+            default:
+                return arch.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Identifies the environment, for keys of anything derived from rules.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public boolean allows(List<Library.Rule> rules) {
+        if (rules == null || rules.isEmpty())
+            return true;
+        return results.computeIfAbsent(canonical(rules), k -> evaluate(rules));
+    }
+
+    /**
+     * Like {@link #allows(List)} for a rule list still in its raw JSON form,
+     * as found in {@code arguments.game} and {@code arguments.jvm}.
+     */
+    public boolean allowsJson(Object rules) {
+        if (!(rules instanceof List) || ((List<?>) rules).isEmpty())
+            return true;
+        try {
+            return allows(GSON.fromJson(GSON.toJsonTree(rules), RULE_LIST));
+        } catch (JsonParseException e) {
+            System.err.println("Ignoring unreadable rules " + rules + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean evaluate(List<Library.Rule> rules) {
+        boolean allow = false;
+        for (Library.Rule rule : rules) {
+            if (rule != null && matches(rule))
+                allow = "allow".equals(rule.getAction());
+        }
+        return allow;
+    }
+
+    private boolean matches(Library.Rule rule) {
+        Library.OS os = rule.getOs();
+        if (os != null) {
+            if (os.getName() != null && !os.getName().equals(osName))
+                return false;
+            if (os.getArch() != null && !normalizeArch(os.getArch()).equals(osArch))
+                return false;
+            if (os.getVersion() != null && !versionMatches(os.getVersion()))
+                return false;
+        }
+        if (rule.getFeatures() != null) {
+            for (Map.Entry<String, Boolean> feature : rule.getFeatures().entrySet()) {
+                if (features.contains(feature.getKey()) != Boolean.TRUE.equals(feature.getValue()))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean versionMatches(String regex) {
+        try {
+            return Pattern.compile(regex).matcher(osVersion).find();
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    /** One string per distinct rule list, used as the cache key. */
+    private static String canonical(List<Library.Rule> rules) {
+        StringBuilder key = new StringBuilder();
+        for (Library.Rule rule : rules) {
+            if (rule == null)
+                continue;
+            key.append(rule.getAction()).append('|');
+            Library.OS os = rule.getOs();
+            if (os != null)
+                key.append(os.getName()).append('|').append(os.getArch()).append('|').append(os.getVersion());
+            key.append('|');
+            if (rule.getFeatures() != null)
+                key.append(new TreeMap<>(rule.getFeatures()));
+            key.append('\n');
+        }
+        return key.toString();
+    }
+}
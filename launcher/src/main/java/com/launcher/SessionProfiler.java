@@ -0,0 +1,371 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Records a game session with Java Flight Recorder and turns the recording
+ * into a short lag report once the game exits.
+ *
+ * The game runs with the settings in {@code session.jfc}, which only enable
+ * the events the report reads. Like the session logs, recordings live in the
+ * game directory of the instance, so games running side by side never share
+ * a file. The recording rotates through a repository in
+ * {@code profiles/repository/} (capped at {@link #MAX_SIZE}) and is dumped to
+ * {@code profiles/<session>.jfr} when the game exits; if the game was killed
+ * the chunks left in the repository are joined instead. The report covers GC
+ * pauses, allocation hot spots, the longest safepoint operations, class
+ * loading time and the methods most often on CPU, and is written next to the
+ * recording as {@code <session>.txt}. Only the newest {@link #KEEP} sessions
+ * are kept.
+ *
+ * Enable for every launch with {@code -Dlauncher.profile=true}, or per launch
+ * with {@link GameLauncher#setProfileSession(boolean)}.
+ */
+public class SessionProfiler {
+    private static final String SETTINGS = "session.jfc";
+    private static final String MAX_SIZE = "256m";
+    private static final int KEEP = 5;
+    private static final int TOP = 5;
+
+    private final File profileDir;
+
+    public SessionProfiler(File gameDir) {
+        this.profileDir = new File(gameDir, "profiles");
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("launcher.profile");
+    }
+
+    /**
+     * Sets up the recording of one session. {@code session} names the files; a
+     * name already taken by an earlier recording gets a numeric suffix.
+     */
+    public Recording begin(String session) throws IOException {
+        profileDir.mkdirs();
+        deleteOlder();
+        File settings = new File(profileDir, SETTINGS);
+        Path temp = Files.createTempFile(profileDir.toPath(), SETTINGS, ".tmp");
+        try (InputStream in = SessionProfiler.class.getResourceAsStream("/" + SETTINGS)) {
+            if (in == null)
+                throw new IOException("Missing " + SETTINGS);
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        DownloadEngine.commit(temp, settings.toPath());
+        File file = new File(profileDir, session + ".jfr");
+        for (int i = 2; file.exists(); i++) {
+            file = new File(profileDir, session + "-" + i + ".jfr");
+        }
+        return new Recording(file, new File(profileDir, "repository"), settings);
+    }
+
+    private void deleteOlder() {
+        File[] recordings = profileDir.listFiles((dir, n) -> n.endsWith(".jfr"));
+        if (recordings == null || recordings.length < KEEP)
+            return;
+        Arrays.sort(recordings, Comparator.comparing(File::getName).reversed());
+        for (int i = KEEP - 1; i < recordings.length; i++) {
+            String name = recordings[i].getName();
+            recordings[i].delete();
+            new File(profileDir, name.substring(0, name.length() - 4) + ".txt").delete();
+        }
+    }
+
+    /**
+     * One profiled launch.
+     */
+    public static class Recording {
+        private final File file;
+        private final File repository;
+        private final File settings;
+
+        private Recording(File file, File repository, File settings) {
+            this.file = file;
+            this.repository = repository;
+            this.settings = settings;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /** JVM options to put before the main class. */
+        public List<String> getOptions() {
+            return List.of("-XX:FlightRecorderOptions=repository=" + repository.getAbsolutePath(),
+                    "-XX:StartFlightRecording=name=session,settings=" + settings.getAbsolutePath()
+                            + ",disk=true,maxsize=" + MAX_SIZE + ",dumponexit=true,filename="
+                            + file.getAbsolutePath());
+        }
+
+        /**
+         * Reads the recording of the exited game {@code pid}, prints the
+         * report and writes it next to the recording. Returns the report file,
+         * or null if there was nothing to read or the recording was damaged.
+         */
+        public File summarize(String versionId, long pid) {
+            try {
+                long start = System.nanoTime();
+                Summary summary = new Summary();
+                if (file.length() > 0) {
+                    read(file, summary);
+                } else if (!recoverChunks(pid, summary)) {
+                    System.err.println("No flight recording found for " + versionId);
+                    return null;
+                }
+                String report = summary.format(versionId, file);
+                File reportFile = new File(file.getParentFile(), file.getName().replaceAll("\\.jfr$", ".txt"));
+                Files.writeString(reportFile.toPath(), report, StandardCharsets.UTF_8);
+                System.out.print(report);
+                System.out.println("Session profile read in " + (System.nanoTime() - start) / 1_000_000
+                        + " ms, saved to " + reportFile);
+                return reportFile;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not read flight recording " + file + ": " + e);
+                return null;
+            }
+        }
+
+        private static void read(File recording, Summary summary) throws IOException {
+            try (RecordingFile in = new RecordingFile(recording.toPath())) {
+                while (in.hasMoreEvents()) {
+                    summary.add(in.readEvent());
+                }
+            }
+        }
+
+        /**
+         * Reads the chunks a killed game left in its repository directory
+         * ({@code <time>_<pid>}) into {@code summary} and joins them into the
+         * recording file. Chunks are complete recordings on their own and can
+         * simply be concatenated; the one being written when the game died
+         * only contributes the events that could be read and is not joined.
+         */
+        private boolean recoverChunks(long pid, Summary summary) throws IOException {
+            File[] dirs = repository.listFiles((dir, n) -> n.endsWith("_" + pid));
+            if (dirs == null || dirs.length == 0)
+                return false;
+            File[] chunks = dirs[0].listFiles((dir, n) -> n.endsWith(".jfr"));
+            if (chunks == null)
+                return false;
+            Arrays.sort(chunks, Comparator.comparing(File::getName));
+            int joined = 0;
+            Path temp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                for (File chunk : chunks) {
+                    try {
+                        read(chunk, summary);
+                    } catch (IOException | RuntimeException e) {
+                        continue;
+                    }
+                    Files.copy(chunk.toPath(), out);
+                    joined++;
+                }
+            }
+            if (joined == 0) {
+                Files.delete(temp);
+                return false;
+            }
+            DownloadEngine.commit(temp, file.toPath());
+            for (File chunk : chunks)
+                chunk.delete();
+            dirs[0].delete();
+            System.out.println("Recovered " + joined + " recording chunks of the killed game");
+            return true;
+        }
+    }
+
+    /**
+     * Aggregates the events of one recording.
+     */
+    static class Summary {
+        private Instant first;
+        private Instant last;
+
+        private int collections;
+        private Duration paused = Duration.ZERO;
+        private Duration longestPause = Duration.ZERO;
+        private String longestPauseCause;
+
+        private long allocated;
+        private final Map<String, Long> allocationSites = new HashMap<>();
+
+        private long cpuSamples;
+        private final Map<String, Long> cpuMethods = new HashMap<>();
+
+        private int safepoints;
+        private Duration safepointTime = Duration.ZERO;
+        private static final Comparator<RecordedEvent> BY_DURATION = Comparator.comparing(e -> e.getDuration());
+        private final PriorityQueue<RecordedEvent> longestSafepoints = new PriorityQueue<>(BY_DURATION);
+
+        private int classesLoaded;
+        /** Class load start and end nanos per thread; nested loads overlap. */
+        private final Map<Long, List<long[]>> classLoads = new HashMap<>();
+
+        void add(RecordedEvent event) {
+            if (first == null || event.getStartTime().isBefore(first))
+                first = event.getStartTime();
+            if (last == null || event.getEndTime().isAfter(last))
+                last = event.getEndTime();
+
+            switch (event.getEventType().getName()) {
+                case "jdk.GarbageCollection": {
+                    collections++;
+                    Duration sum = event.getDuration("sumOfPauses");
+                    Duration longest = event.getDuration("longestPause");
+                    paused = paused.plus(sum);
+                    if (longest.compareTo(longestPause) > 0) {
+                        longestPause = longest;
+                        longestPauseCause = event.getString("name") + ", " + event.getString("cause");
+                    }
+                    break;
+                }
+                case "jdk.ObjectAllocationSample": {
+                    long weight = event.getLong("weight");
+                    allocated += weight;
+                    allocationSites.merge(topFrame(event.getStackTrace()), weight, Long::sum);
+                    break;
+                }
+                case "jdk.ExecutionSample":
+                    cpuSamples++;
+                    cpuMethods.merge(topFrame(event.getStackTrace()), 1L, Long::sum);
+                    break;
+                case "jdk.ExecuteVMOperation":
+                    if (!event.getBoolean("safepoint"))
+                        break;
+                    safepoints++;
+                    safepointTime = safepointTime.plus(event.getDuration());
+                    longestSafepoints.add(event);
+                    if (longestSafepoints.size() > TOP)
+                        longestSafepoints.poll();
+                    break;
+                case "jdk.ClassLoad": {
+                    classesLoaded++;
+                    long thread = event.getThread() != null ? event.getThread().getJavaThreadId() : 0;
+                    addClassLoad(thread, nanos(event.getStartTime()), nanos(event.getEndTime()));
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+
+        void addClassLoad(long thread, long startNanos, long endNanos) {
+            classLoads.computeIfAbsent(thread, k -> new ArrayList<>()).add(new long[] { startNanos, endNanos });
+        }
+
+        private static long nanos(Instant instant) {
+            return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+        }
+
+        private static String topFrame(RecordedStackTrace stackTrace) {
+            if (stackTrace == null || stackTrace.getFrames().isEmpty())
+                return "(no stack)";
+            RecordedFrame frame = stackTrace.getFrames().get(0);
+            return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+        }
+
+        /**
+         * Time spent loading classes: the union of the load intervals on each
+         * thread, so a class loaded while loading another is not counted
+         * twice.
+         */
+        Duration classLoadTime() {
+            long total = 0;
+            for (List<long[]> loads : classLoads.values()) {
+                loads.sort(Comparator.comparingLong(l -> l[0]));
+                long end = Long.MIN_VALUE;
+                for (long[] load : loads) {
+                    if (load[0] >= end) {
+                        total += load[1] - load[0];
+                        end = load[1];
+                    } else if (load[1] > end) {
+                        total += load[1] - end;
+                        end = load[1];
+                    }
+                }
+            }
+            return Duration.ofNanos(total);
+        }
+
+        String format(String versionId, File recording) {
+            Duration length = first != null ? Duration.between(first, last) : Duration.ZERO;
+            StringBuilder out = new StringBuilder();
+            String nl = System.lineSeparator();
+            out.append("Session profile of ").append(versionId).append(" (").append(seconds(length))
+                    .append(" recorded, ").append(recording).append(")").append(nl);
+
+            out.append("GC pauses: ").append(collections).append(" collections, ").append(millis(paused))
+                    .append(" paused (").append(percent(paused.toNanos(), length.toNanos())).append(")");
+            if (longestPauseCause != null)
+                out.append(", longest ").append(millis(longestPause)).append(" (").append(longestPauseCause)
+                        .append(")");
+            out.append(nl);
+
+            out.append("Allocation hot spots (").append(allocated / (1024 * 1024)).append(" MB sampled):")
+                    .append(nl);
+            appendTop(out, allocationSites, allocated);
+
+            out.append("Longest safepoints (").append(safepoints).append(" in ").append(millis(safepointTime))
+                    .append("):").append(nl);
+            List<RecordedEvent> longest = new ArrayList<>(longestSafepoints);
+            longest.sort(BY_DURATION.reversed());
+            for (RecordedEvent event : longest) {
+                out.append(String.format(Locale.ROOT, "  %10s  %s", millis(event.getDuration()),
+                        event.getString("operation"))).append(nl);
+            }
+
+            out.append("Class loading: ").append(classesLoaded).append(" classes in ")
+                    .append(millis(classLoadTime())).append(nl);
+
+            out.append("Top CPU methods (").append(cpuSamples).append(" samples):").append(nl);
+            appendTop(out, cpuMethods, cpuSamples);
+            return out.toString();
+        }
+
+        private static void appendTop(StringBuilder out, Map<String, Long> values, long total) {
+            List<Map.Entry<String, Long>> top = values.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                    .limit(TOP)
+                    .collect(Collectors.toList());
+            for (Map.Entry<String, Long> entry : top) {
+                out.append(String.format(Locale.ROOT, "  %10s  %s", percent(entry.getValue(), total),
+                        entry.getKey())).append(System.lineSeparator());
+            }
+        }
+
+        private static String percent(long part, long total) {
+            return total > 0 ? String.format(Locale.ROOT, "%.1f%%", 100.0 * part / total) : "0.0%";
+        }
+
+        private static String millis(Duration duration) {
+            return String.format(Locale.ROOT, "%.1f ms", duration.toNanos() / 1e6);
+        }
+
+        private static String seconds(Duration duration) {
+            return String.format(Locale.ROOT, "%.1f s", duration.toNanos() / 1e9);
+        }
+    }
+}
@@ -1,14 +1,11 @@
 package com.launcher;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.List;
-import java.util.Scanner;
 
 import com.google.gson.Gson;
 import com.launcher.model.Version;
@@ -30,27 +27,30 @@ public class VersionManager {
             throw new IOException("Version file does not exist: " + jsonFile);
         }
 
-        try (FileReader reader = new FileReader(jsonFile)) {
-            Version version = gson.fromJson(reader, Version.class);
-            version.setId(versionId);
-
-            if (version.getInheritsFrom() != null && !version.getInheritsFrom().isEmpty()) {
-                System.out.println("Inheriting from " + versionId + " -> " + version.getInheritsFrom());
-
-                File parentFile = new File(versionsDir,
-                        version.getInheritsFrom() + "/" + version.getInheritsFrom() + ".json");
-                if (!parentFile.exists()) {
-                    System.out.println(
-                            "Parent version " + version.getInheritsFrom() + " not found locally. Downloading...");
-                    downloadVersionIndex(version.getInheritsFrom());
-                }
-
-                Version parent = loadVersion(version.getInheritsFrom());
-                mergeVersions(version, parent);
+        byte[] json = Files.readAllBytes(jsonFile.toPath());
+        MessageDigest chain = Hashing.newSha1();
+        chain.update(json);
+        Version version = gson.fromJson(new String(json, StandardCharsets.UTF_8), Version.class);
+        version.setId(versionId);
+
+        if (version.getInheritsFrom() != null && !version.getInheritsFrom().isEmpty()) {
+            System.out.println("Inheriting from " + versionId + " -> " + version.getInheritsFrom());
+
+            File parentFile = new File(versionsDir,
+                    version.getInheritsFrom() + "/" + version.getInheritsFrom() + ".json");
+            if (!parentFile.exists()) {
+                System.out.println(
+                        "Parent version " + version.getInheritsFrom() + " not found locally. Downloading...");
+                downloadVersionIndex(version.getInheritsFrom());
             }
 
-            return version;
+            Version parent = loadVersion(version.getInheritsFrom());
+            mergeVersions(version, parent);
+            chain.update(parent.getChainHash().getBytes(StandardCharsets.UTF_8));
         }
+
+        version.setChainHash(Hashing.toHex(chain.digest()));
+        return version;
     }
 
     private void mergeVersions(Version child, Version parent) {
@@ -132,15 +132,11 @@ public class VersionManager {
     }
 
     private String downloadString(String urlStr) throws IOException {
-        try (Scanner s = new Scanner(new URL(urlStr).openStream(), "UTF-8")) {
-            return s.useDelimiter("\\A").next();
-        }
+        return DownloadEngine.shared().downloadString(urlStr);
     }
 
     private void downloadFile(String urlStr, File target) throws IOException {
-        try (InputStream in = new URL(urlStr).openStream()) {
-            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        DownloadEngine.shared().download(urlStr, target);
     }
 
     public void downloadGameJar(Version version) throws IOException {
@@ -151,7 +147,9 @@ public class VersionManager {
 
         if (!jarFile.exists()) {
             System.out.println("Descargando JAR para " + version.getId());
-            downloadFile(version.getDownloads().getClient().getUrl(), jarFile);
+            Library.Artifact client = version.getDownloads().getClient();
+            DownloadEngine.shared().downloadResumable(client.getUrl(), jarFile, client.getSha1(),
+                    client.getSize() > 0 ? client.getSize() : -1);
         }
     }
 }
\ No newline at end of file
@@ -13,10 +13,12 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import java.awt.Desktop;
 import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class MainController {
 
@@ -32,13 +34,21 @@ public class MainController {
     @FXML
     private ComboBox<String> versionSelector;
     @FXML
+    private ComboBox<String> instanceSelector;
+    @FXML
     private ComboBox<String> ramSelector;
     @FXML
+    private ComboBox<String> tuningSelector;
+    @FXML
+    private CheckBox profileCheck;
+    @FXML
     private TextArea consoleArea;
     @FXML
     private ProgressBar progressBar;
     @FXML
     private Label statusLabel;
+    @FXML
+    private Label telemetryLabel;
 
     @FXML
     private ListView<String> modsList;
@@ -58,10 +68,17 @@ public class MainController {
         // Init RAM Selector
         ramSelector.setItems(FXCollections.observableArrayList(
                 "2 GB", "4 GB", "6 GB", "8 GB", "10 GB", "12 GB", "16 GB"));
+        // Init JVM tuning selector
+        List<String> profiles = new ArrayList<>();
+        for (JvmTuning.Profile profile : JvmTuning.Profile.values())
+            profiles.add(profile.getDisplayName());
+        tuningSelector.setItems(FXCollections.observableArrayList(profiles));
         loadOptions();
         ramSelector.setOnAction(e -> saveOptions());
+        tuningSelector.setOnAction(e -> saveOptions());
 
         usernameField.setText("NeoDev");
+        loadInstances();
 
         // Init Tabs
         showPlayTab();
@@ -75,6 +92,8 @@ public class MainController {
         if (ramSelector.getSelectionModel().getSelectedItem() == null) {
             ramSelector.getSelectionModel().select("4 GB"); // Fallback
         }
+        tuningSelector.getSelectionModel()
+                .select(JvmTuning.Profile.fromName(prefs.get("jvm_tuning", "")).getDisplayName());
     }
 
     private void saveOptions() {
@@ -85,6 +104,10 @@ public class MainController {
             java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(MainController.class);
             prefs.putInt("max_ram_mb", mb);
         }
+        if (tuningSelector.getValue() != null) {
+            java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(MainController.class);
+            prefs.put("jvm_tuning", JvmTuning.Profile.fromName(tuningSelector.getValue()).name());
+        }
     }
 
     private void setupWorkDir() {
@@ -171,19 +194,28 @@ public class MainController {
         String username = usernameField.getText();
         String type = typeSelector.getValue();
         String versionRaw = versionSelector.getValue();
+        String instance = instanceSelector.getValue() == null || instanceSelector.getValue().isBlank()
+                ? GameLauncher.DEFAULT_INSTANCE
+                : instanceSelector.getValue().trim();
+        boolean profile = profileCheck.isSelected();
 
-        Task<Void> launchTask = new Task<>() {
+        // The button is only locked while preparing; games run side by side
+        Task<GameHandle> launchTask = new Task<>() {
             @Override
-            protected Void call() throws Exception {
-                launchGameLogic(username, type, versionRaw);
-                return null;
+            protected GameHandle call() throws Exception {
+                return launchGameLogic(username, type, versionRaw, instance, profile);
             }
 
             @Override
             protected void succeeded() {
                 btnLaunch.setDisable(false);
                 progressBar.setVisible(false);
-                statusLabel.setText("Game Closed");
+                loadInstances();
+                showRunning();
+                getValue().onExit().whenComplete((code, error) -> Platform.runLater(() -> {
+                    System.out.println("Instance " + instance + " closed");
+                    showRunning();
+                }));
             }
 
             @Override
@@ -205,14 +237,35 @@ public class MainController {
         new Thread(launchTask).start();
     }
 
-    private void launchGameLogic(String username, String type, String versionRaw) throws Exception {
-        System.out.println("Starting launch for " + type + " " + versionRaw);
+    private GameHandle launchGameLogic(String username, String type, String versionRaw, String instance,
+            boolean profile) throws Exception {
+        System.out.println("Starting launch for " + type + " " + versionRaw + " (instance " + instance + ")");
+
+        // Get RAM
+        java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(MainController.class);
+        int ramMB = prefs.getInt("max_ram_mb", 4096);
+        JvmTuning.Profile tuning = JvmTuning.Profile.fromName(prefs.get("jvm_tuning", ""));
+
+        GameLauncher launcher = new GameLauncher(workDir);
+        launcher.addOutputConsumer(new ConsoleView());
+        launcher.setProfileSession(profile);
+        launcher.addTelemetryListener(
+                sample -> Platform.runLater(() -> telemetryLabel.setText(instance + ": " + sample)));
+        File gameDir = launcher.instanceDirectory(instance);
+
+        // Unchanged version and settings: start straight from the stored plan
+        String selection = type + " " + versionRaw
+                + (instance.equals(GameLauncher.DEFAULT_INSTANCE) ? "" : " @" + instance);
+        String settingsHash = LaunchPlan.settingsHash(username, ramMB, tuning);
+        LaunchPlan plan = LaunchPlan.loadIfCurrent(workDir, selection, settingsHash);
+        if (plan != null) {
+            updateMessage("Launching...");
+            return launcher.start(plan);
+        }
 
         OfflineAuthenticator.Session session = OfflineAuthenticator.login(username);
 
         VersionManager manager = new VersionManager(workDir);
-        AssetManager assetManager = new AssetManager(workDir);
-        GameLauncher launcher = new GameLauncher(workDir);
 
         String versionId = "";
 
@@ -239,27 +292,63 @@ public class MainController {
         updateMessage("Loading Version...");
         Version version = manager.loadVersion(versionId);
 
-        updateMessage("Downloading Assets...");
-        if (version.getAssetIndex() != null)
-            assetManager.downloadAssets(version);
+        // Client jar, libraries and boot-critical assets first; sounds and music
+        // keep downloading in the background while the game starts
+        updateMessage("Downloading Game Files...");
+        LaunchPreparation preparation = new LaunchPreparation(workDir, manager);
+        CompletableFuture<Void> backgroundAssets = preparation.prepare(version,
+                !type.equals("Forge") && !type.equals("NeoForge"));
+        backgroundAssets.whenComplete((ignored, error) -> {
+            if (error != null) {
+                System.err.println("Background asset download failed: " + error.getMessage());
+            } else {
+                System.out.println("All assets downloaded.");
+            }
+        });
 
-        updateMessage("Downloading Libraries...");
-        if (version.getLibraries() != null) {
-            com.launcher.LibraryManager libMgr = new com.launcher.LibraryManager(workDir);
-            libMgr.downloadLibraries(version);
+        plan = launcher.plan(version, session, ramMB, tuning, gameDir);
+        try {
+            plan.save(workDir, selection, settingsHash);
+        } catch (IOException e) {
+            System.err.println("Could not save launch plan: " + e.getMessage());
         }
 
-        if (!type.equals("Forge") && !type.equals("NeoForge")) {
-            manager.downloadGameJar(version);
+        updateMessage("Launching...");
+        System.out.println("Launching game process with " + ramMB + "MB RAM...");
+        return launcher.start(plan);
+    }
+
+    private void showRunning() {
+        List<GameHandle> running = GameLauncher.getRunning();
+        if (running.isEmpty()) {
+            statusLabel.setText("Game Closed");
+            return;
         }
+        List<String> names = new ArrayList<>();
+        for (GameHandle handle : running)
+            names.add(handle.getVersionId() + " in " + handle.getGameDirectory().getName());
+        statusLabel.setText("Running: " + String.join(", ", names));
+    }
 
-        // Get RAM
-        java.util.prefs.Preferences prefs = java.util.prefs.Preferences.userNodeForPackage(MainController.class);
-        int ramMB = prefs.getInt("max_ram_mb", 4096);
+    /**
+     * Lists the default instance plus every directory under
+     * {@code instances/}; typing a new name creates an instance on launch.
+     */
+    private void loadInstances() {
+        String selected = instanceSelector.getValue();
+        List<String> names = new ArrayList<>();
+        names.add(GameLauncher.DEFAULT_INSTANCE);
+        String[] dirs = new File(workDir, "instances").list((d, name) -> new File(d, name).isDirectory());
+        if (dirs != null) {
+            java.util.Arrays.sort(dirs);
+            names.addAll(java.util.Arrays.asList(dirs));
+        }
+        instanceSelector.setItems(FXCollections.observableArrayList(names));
+        instanceSelector.setValue(selected != null ? selected : GameLauncher.DEFAULT_INSTANCE);
+    }
 
-        updateMessage("Launching...");
-        System.out.println("Launching game process with " + ramMB + "MB RAM...");
-        launcher.launch(version, session, ramMB);
+    private File currentGameDir() {
+        return new GameLauncher(workDir).instanceDirectory(instanceSelector.getValue());
     }
 
     private void updateMessage(String msg) {
@@ -269,7 +358,7 @@ public class MainController {
     @FXML
     private void openModsFolder() {
         try {
-            File modsDir = new File(workDir, "mods");
+            File modsDir = new File(currentGameDir(), "mods");
             if (!modsDir.exists())
                 modsDir.mkdirs();
             Desktop.getDesktop().open(modsDir);
@@ -279,7 +368,7 @@ public class MainController {
     }
 
     private void loadModsList() {
-        File modsDir = new File(workDir, "mods");
+        File modsDir = new File(currentGameDir(), "mods");
         if (modsDir.exists()) {
             String[] files = modsDir.list((d, name) -> name.endsWith(".jar"));
             if (files != null) {
@@ -288,6 +377,56 @@ public class MainController {
         }
     }
 
+    /**
+     * Shows game output in the console area. Batches are coalesced into one UI
+     * update at a time, and both the pending text and the console keep only
+     * their newest part, so a flood of output cannot pile up on the FX thread.
+     */
+    private class ConsoleView implements GameOutput.Consumer {
+        private static final int MAX_PENDING_CHARS = 256 * 1024;
+        private static final int MAX_CONSOLE_CHARS = 1024 * 1024;
+
+        private final StringBuilder pending = new StringBuilder();
+        private boolean scheduled;
+
+        @Override
+        public void accept(List<GameOutput.Line> lines) {
+            StringBuilder text = new StringBuilder();
+            for (GameOutput.Line line : lines) {
+                text.append(line.getText()).append('\n');
+            }
+            append(text);
+        }
+
+        @Override
+        public void dropped(long count) {
+            append("[launcher] " + count + " lines of game output skipped\n");
+        }
+
+        private synchronized void append(CharSequence text) {
+            pending.append(text);
+            if (pending.length() > MAX_PENDING_CHARS)
+                pending.delete(0, pending.length() - MAX_PENDING_CHARS);
+            if (!scheduled) {
+                scheduled = true;
+                Platform.runLater(this::flush);
+            }
+        }
+
+        private void flush() {
+            String text;
+            synchronized (this) {
+                text = pending.toString();
+                pending.setLength(0);
+                scheduled = false;
+            }
+            consoleArea.appendText(text);
+            int excess = consoleArea.getLength() - MAX_CONSOLE_CHARS;
+            if (excess > 0)
+                consoleArea.deleteText(0, excess);
+        }
+    }
+
     private void setupRedirection() {
         OutputStream out = new OutputStream() {
             @Override
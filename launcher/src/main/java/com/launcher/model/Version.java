@@ -18,6 +18,7 @@ public class Version {
     private String type; // release, snapshot, old_beta, etc.
     private String time;
     private String releaseTime;
+    private transient String chainHash; // Set by VersionManager, not part of the JSON
 
     // Getters and Setters
     public String getId() {
@@ -92,6 +93,18 @@ public class Version {
         this.type = type;
     }
 
+    /**
+     * SHA-1 over this version's JSON and every JSON it inherits from, or null
+     * if the version was not loaded from disk.
+     */
+    public String getChainHash() {
+        return chainHash;
+    }
+
+    public void setChainHash(String chainHash) {
+        this.chainHash = chainHash;
+    }
+
     public boolean isLegacy() {
         return minecraftArguments != null && (arguments == null);
     }
@@ -139,6 +152,10 @@ public class Version {
         public void setUrl(String url) {
             this.url = url;
         }
+
+        public String getSha1() {
+            return sha1;
+        }
     }
 
     public static class Downloads {
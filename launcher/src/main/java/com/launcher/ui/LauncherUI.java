@@ -211,7 +211,7 @@ public class LauncherUI extends JFrame {
         System.out.println("Downloading libraries...");
         if (version.getLibraries() != null) {
             com.launcher.LibraryManager libMgr = new com.launcher.LibraryManager(workDir);
-            libMgr.downloadLibraries(version);
+            libMgr.downloadLibraries(version).throwIfFailed("libraries");
         }
 
         // Download Client Jar
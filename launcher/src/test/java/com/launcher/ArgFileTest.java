@@ -0,0 +1,26 @@
+package com.launcher;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the argument quoting of {@link ArgFile}.
+ */
+public class ArgFileTest extends TestCase {
+    public void testPlainArgumentIsQuoted() {
+        assertEquals("\"-Xmx2G\"", ArgFile.quote("-Xmx2G"));
+        assertEquals("\"\"", ArgFile.quote(""));
+    }
+
+    public void testSpacesNeedNoEscape() {
+        assertEquals("\"C:/Program Files/Game\"", ArgFile.quote("C:/Program Files/Game"));
+    }
+
+    public void testBackslashesAndQuotesAreEscaped() {
+        assertEquals("\"C:\\\\Users\\\\me\"", ArgFile.quote("C:\\Users\\me"));
+        assertEquals("\"say \\\"hi\\\"\"", ArgFile.quote("say \"hi\""));
+    }
+
+    public void testLineBreaksAndTabsAreEscaped() {
+        assertEquals("\"a\\nb\\rc\\td\"", ArgFile.quote("a\nb\rc\td"));
+    }
+}
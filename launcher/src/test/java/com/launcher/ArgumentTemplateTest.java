@@ -0,0 +1,69 @@
+package com.launcher;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ArgumentTemplate}.
+ */
+public class ArgumentTemplateTest extends TestCase {
+    private static final Map<String, String> VARS = Map.of("auth_player_name", "Steve", "version_name", "1.21.1",
+            "natives_directory", "/tmp/natives");
+
+    public void testLiteralAndSingleSlot() {
+        Set<String> unknown = new HashSet<>();
+        assertEquals("--username", ArgumentTemplate.compile("--username").fill(VARS, unknown));
+        assertEquals("Steve", ArgumentTemplate.compile("${auth_player_name}").fill(VARS, unknown));
+        assertTrue(unknown.isEmpty());
+    }
+
+    public void testMixedLiteralsAndSlots() {
+        Set<String> unknown = new HashSet<>();
+        assertEquals("-Djava.library.path=/tmp/natives",
+                ArgumentTemplate.compile("-Djava.library.path=${natives_directory}").fill(VARS, unknown));
+        assertEquals("Steve@1.21.1!",
+                ArgumentTemplate.compile("${auth_player_name}@${version_name}!").fill(VARS, unknown));
+        assertTrue(unknown.isEmpty());
+    }
+
+    public void testUnknownPlaceholderIsKeptAndReported() {
+        Set<String> unknown = new HashSet<>();
+        assertEquals("${quickPlayPath}", ArgumentTemplate.compile("${quickPlayPath}").fill(VARS, unknown));
+        assertEquals("x=${clientid};", ArgumentTemplate.compile("x=${clientid};").fill(VARS, unknown));
+        assertEquals(Set.of("quickPlayPath", "clientid"), unknown);
+    }
+
+    public void testUnclosedPlaceholderIsLiteral() {
+        Set<String> unknown = new HashSet<>();
+        assertEquals("${broken", ArgumentTemplate.compile("${broken").fill(VARS, unknown));
+        assertTrue(unknown.isEmpty());
+    }
+
+    public void testCompileAllAppliesRules() {
+        List<Object> args = new Gson().fromJson("[\"--username\",\"${auth_player_name}\","
+                + "{\"rules\":[{\"action\":\"allow\"}],\"value\":[\"--width\",\"854\"]},"
+                + "{\"rules\":[{\"action\":\"disallow\"}],\"value\":\"--demo\"}]",
+                new TypeToken<List<Object>>() {
+                }.getType());
+        List<ArgumentTemplate> templates = ArgumentTemplate.compileAll(args,
+                rules -> !String.valueOf(rules).contains("disallow"));
+        List<String> out = new ArrayList<>();
+        ArgumentTemplate.fillAll(templates, VARS, out, new HashSet<>());
+        assertEquals(List.of("--username", "Steve", "--width", "854"), out);
+    }
+
+    public void testCompileLegacySplitsOnWhitespace() {
+        List<String> out = new ArrayList<>();
+        ArgumentTemplate.fillAll(ArgumentTemplate.compileLegacy("  --username ${auth_player_name}\t--version  ${version_name} "),
+                VARS, out, new HashSet<>());
+        assertEquals(List.of("--username", "Steve", "--version", "1.21.1"), out);
+    }
+}
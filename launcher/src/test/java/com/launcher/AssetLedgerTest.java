@@ -0,0 +1,79 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link AssetLedger}.
+ */
+public class AssetLedgerTest extends TestCase {
+    private File assetsDir;
+
+    @Override
+    protected void setUp() throws IOException {
+        assetsDir = Files.createTempDirectory("ledger").toFile();
+    }
+
+    private File object(String name, String content) throws IOException {
+        File file = new File(assetsDir, "objects/" + name);
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    public void testRecordedEntriesSurviveSaveWithoutEarlierLoad() throws IOException {
+        File a = object("a", "first");
+        File b = object("b", "second");
+        AssetLedger ledger = new AssetLedger(assetsDir);
+        ledger.recordVerified("aaaa", a);
+        ledger.recordVerified("bbbb", b);
+        ledger.save();
+
+        AssetLedger reloaded = new AssetLedger(assetsDir);
+        assertTrue(reloaded.isVerified("aaaa", a));
+        assertTrue(reloaded.isVerified("bbbb", b));
+        assertFalse(reloaded.isVerified("cccc", a));
+    }
+
+    public void testSaveMergesWithStoredEntries() throws IOException {
+        File a = object("a", "first");
+        File b = object("b", "second");
+        AssetLedger first = new AssetLedger(assetsDir);
+        first.recordVerified("aaaa", a);
+        first.save();
+
+        AssetLedger second = new AssetLedger(assetsDir);
+        second.recordVerified("bbbb", b);
+        second.save();
+
+        AssetLedger reloaded = new AssetLedger(assetsDir);
+        assertTrue(reloaded.isVerified("aaaa", a));
+        assertTrue(reloaded.isVerified("bbbb", b));
+    }
+
+    public void testForgottenEntryIsNotRestoredFromDisk() throws IOException {
+        File a = object("a", "first");
+        AssetLedger first = new AssetLedger(assetsDir);
+        first.recordVerified("aaaa", a);
+        first.save();
+
+        AssetLedger second = new AssetLedger(assetsDir);
+        second.forget("aaaa");
+        assertFalse(second.isVerified("aaaa", a));
+        second.save();
+        assertFalse(new AssetLedger(assetsDir).isVerified("aaaa", a));
+    }
+
+    public void testChangedFileIsNotTrusted() throws IOException {
+        File a = object("a", "first");
+        AssetLedger ledger = new AssetLedger(assetsDir);
+        ledger.recordVerified("aaaa", a);
+        ledger.save();
+
+        Files.writeString(a.toPath(), "changed content");
+        assertFalse(new AssetLedger(assetsDir).isVerified("aaaa", a));
+    }
+}
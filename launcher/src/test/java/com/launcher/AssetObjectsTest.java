@@ -0,0 +1,81 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+
+import com.google.gson.stream.JsonReader;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link AssetObjects}.
+ */
+public class AssetObjectsTest extends TestCase {
+    private static final String HASH_A = "bdf48ef6b5d0d23bbdce7aa4f4ee4a4b1e4b0c0e";
+    private static final String HASH_B = "0123456789ABCDEF0123456789abcdef01234567";
+
+    private static AssetObjects parse(String json) throws IOException {
+        return AssetObjects.parse(new JsonReader(new StringReader(json)));
+    }
+
+    public void testParsesObjectsInOrder() throws IOException {
+        AssetObjects objects = parse("{\"objects\":{"
+                + "\"icons/icon_16x16.png\":{\"hash\":\"" + HASH_A + "\",\"size\":3665},"
+                + "\"minecraft/sounds.json\":{\"size\":12,\"hash\":\"" + HASH_B + "\",\"extra\":[1,2]}}}");
+        assertEquals(2, objects.size());
+        assertEquals("icons/icon_16x16.png", objects.name(0));
+        assertEquals(HASH_A, objects.hash(0));
+        assertEquals(3665, objects.objectSize(0));
+        assertEquals("minecraft/sounds.json", objects.name(1));
+        assertEquals(HASH_B.toLowerCase(), objects.hash(1));
+        assertEquals(3677, objects.totalSize());
+        assertFalse(objects.isVirtual());
+        assertFalse(objects.isMapToResources());
+    }
+
+    public void testLegacyFlags() throws IOException {
+        AssetObjects objects = parse("{\"virtual\":true,\"objects\":{},\"map_to_resources\":true}");
+        assertEquals(0, objects.size());
+        assertTrue(objects.isVirtual());
+        assertTrue(objects.isMapToResources());
+    }
+
+    public void testGrowsPastInitialCapacity() throws IOException {
+        StringBuilder json = new StringBuilder("{\"objects\":{");
+        for (int i = 0; i < 5000; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("\"f").append(i).append("\":{\"hash\":\"").append(HASH_A).append("\",\"size\":1}");
+        }
+        AssetObjects objects = parse(json.append("}}").toString());
+        assertEquals(5000, objects.size());
+        assertEquals("f4999", objects.name(4999));
+        assertEquals(HASH_A, objects.hash(4999));
+        assertEquals(5000, objects.totalSize());
+    }
+
+    public void testRejectsMissingOrBadHash() {
+        for (String entry : new String[] { "{\"size\":1}", "{\"hash\":\"abc\",\"size\":1}",
+                "{\"hash\":\"zz" + HASH_A.substring(2) + "\",\"size\":1}" }) {
+            try {
+                parse("{\"objects\":{\"x\":" + entry + "}}");
+                fail("Accepted " + entry);
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    public void testParsesFile() throws IOException {
+        File index = File.createTempFile("index", ".json");
+        try {
+            Files.writeString(index.toPath(), "{\"objects\":{\"a\":{\"hash\":\"" + HASH_A + "\",\"size\":7}}}");
+            AssetObjects objects = AssetObjects.parse(index);
+            assertEquals(1, objects.size());
+            assertEquals(7, objects.objectSize(0));
+        } finally {
+            index.delete();
+        }
+    }
+}
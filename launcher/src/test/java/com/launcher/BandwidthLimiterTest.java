@@ -0,0 +1,107 @@
+package com.launcher;
+
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link BandwidthLimiter}, driven by a fake clock.
+ */
+public class BandwidthLimiterTest extends TestCase {
+    private static final long SECOND = 1_000_000_000L;
+    private static final long BURST = 250; // BURST_SECONDS of a 1000 B/s rate
+
+    private final AtomicLong now = new AtomicLong(100 * SECOND);
+    private final AtomicLong slept = new AtomicLong();
+
+    /** A limiter whose sleeps advance the fake clock. */
+    private BandwidthLimiter limiter(long bytesPerSecond, boolean fairShare) {
+        return new BandwidthLimiter(bytesPerSecond, fairShare, now::get, nanos -> {
+            slept.addAndGet(nanos);
+            now.addAndGet(nanos);
+        });
+    }
+
+    public void testRefillsAtConfiguredRate() throws InterruptedIOException {
+        BandwidthLimiter limiter = limiter(1000, false);
+        for (int i = 0; i < 100; i++)
+            limiter.acquire("default", 100);
+        // 10000 bytes at 1000 B/s, less the burst available at the start
+        assertEquals((10_000 - BURST) * SECOND / 1000, slept.get(), SECOND / 1000);
+    }
+
+    public void testIdleTimeOnlyEarnsBurst() throws InterruptedIOException {
+        BandwidthLimiter limiter = limiter(1000, false);
+        now.addAndGet(3600 * SECOND);
+        limiter.acquire("default", BURST);
+        assertEquals(0, slept.get());
+        limiter.acquire("default", 500);
+        assertEquals(SECOND / 2, slept.get());
+    }
+
+    public void testUnlimitedNeverWaits() throws InterruptedIOException {
+        BandwidthLimiter limiter = limiter(0, false);
+        limiter.acquire("default", Long.MAX_VALUE / 2);
+        assertEquals(0, slept.get());
+        assertFalse(limiter.isEnabled());
+    }
+
+    public void testActiveGroupsShareTheRate() throws InterruptedIOException {
+        BandwidthLimiter limiter = limiter(1000, true);
+        limiter.begin("assets");
+        limiter.begin("libraries");
+        // Each group gets 500 B/s: 1000 bytes take 2 s minus the burst
+        limiter.acquire("assets", 1000);
+        assertEquals((1000 - BURST / 2) * SECOND / 500, slept.get(), SECOND / 1000);
+
+        // Alone again, libraries gets the full rate (at 500 B/s this would take 3.75 s)
+        limiter.end("assets");
+        slept.set(0);
+        limiter.acquire("libraries", 1000);
+        limiter.acquire("libraries", 1000);
+        assertEquals((2000 - BURST) * SECOND / 1000, slept.get(), SECOND / 1000);
+        limiter.end("libraries");
+    }
+
+    public void testConcurrentAcquirersGetEqualShares() throws Exception {
+        // The clock stands still, so a wait is how far ahead the group is booked
+        Map<Thread, Long> longestWait = new ConcurrentHashMap<>();
+        BandwidthLimiter limiter = new BandwidthLimiter(1000, true, now::get,
+                nanos -> longestWait.merge(Thread.currentThread(), nanos, Math::max));
+        String[] groups = { "assets", "libraries" };
+        for (String group : groups)
+            limiter.begin(group);
+
+        Map<Thread, Integer> groupOf = new HashMap<>();
+        for (int g = 0; g < groups.length; g++) {
+            String group = groups[g];
+            // The assets group asks for three times as much data
+            long chunk = g == 0 ? 300 : 100;
+            for (int t = 0; t < 4; t++) {
+                groupOf.put(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 50; i++)
+                            limiter.acquire(group, chunk);
+                    } catch (InterruptedIOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }), g);
+            }
+        }
+        for (Thread thread : groupOf.keySet())
+            thread.start();
+        for (Thread thread : groupOf.keySet())
+            thread.join();
+
+        long[] booked = new long[groups.length];
+        for (Map.Entry<Thread, Integer> entry : groupOf.entrySet())
+            booked[entry.getValue()] = Math.max(booked[entry.getValue()], longestWait.get(entry.getKey()));
+        // Each group drains at 500 B/s no matter how much the other one wants
+        assertEquals((60_000 - BURST / 2) * SECOND / 500, booked[0], SECOND / 1000);
+        assertEquals((20_000 - BURST / 2) * SECOND / 500, booked[1], SECOND / 1000);
+    }
+}
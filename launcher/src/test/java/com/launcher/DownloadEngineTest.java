@@ -0,0 +1,224 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link DownloadEngine} against local HTTP servers.
+ */
+public class DownloadEngineTest extends TestCase {
+    private static final byte[] BODY = "download engine test body".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer primary;
+    private HttpServer backup;
+    private final AtomicInteger primaryRequests = new AtomicInteger();
+    private final AtomicInteger backupRequests = new AtomicInteger();
+    private volatile int primaryStatus = 200;
+    private volatile long primaryDelayMillis;
+    private final CountDownLatch loserClosed = new CountDownLatch(1);
+    private final AtomicInteger flakyRequests = new AtomicInteger();
+    private volatile int badAnswers;
+    private volatile boolean targetSeenEarly;
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        primary = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        primary.createContext("/", this::servePrimary);
+        primary.createContext("/flaky", this::serveFlaky);
+        primary.start();
+        backup = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        backup.createContext("/", exchange -> {
+            backupRequests.incrementAndGet();
+            send(exchange, 200, BODY);
+        });
+        backup.start();
+        dir = Files.createTempDirectory("engine").toFile();
+    }
+
+    @Override
+    protected void tearDown() {
+        primary.stop(0);
+        backup.stop(0);
+    }
+
+    /**
+     * Answers with {@link #primaryStatus} after {@link #primaryDelayMillis}. A
+     * delayed answer is a large body, so a client that drops it makes the
+     * write fail.
+     */
+    private void servePrimary(HttpExchange exchange) throws IOException {
+        primaryRequests.incrementAndGet();
+        if (primaryDelayMillis == 0) {
+            send(exchange, primaryStatus, BODY);
+            return;
+        }
+        try {
+            Thread.sleep(primaryDelayMillis);
+            exchange.sendResponseHeaders(200, 64L << 20);
+            try (OutputStream out = exchange.getResponseBody()) {
+                byte[] chunk = new byte[64 * 1024];
+                for (int i = 0; i < 1024; i++) {
+                    out.write(chunk);
+                }
+            }
+        } catch (InterruptedException | IOException e) {
+            loserClosed.countDown();
+        }
+    }
+
+    /**
+     * Answers the first {@link #badAnswers} requests with a corrupted body of
+     * the right length, then with {@link #BODY}.
+     */
+    private void serveFlaky(HttpExchange exchange) throws IOException {
+        if (new File(dir, "flaky").exists())
+            targetSeenEarly = true;
+        if (flakyRequests.incrementAndGet() <= badAnswers) {
+            byte[] bad = BODY.clone();
+            bad[0] ^= 1;
+            send(exchange, 200, bad);
+        } else {
+            send(exchange, 200, BODY);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String base(HttpServer server) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    private static DownloadEngine engine(Duration hedgeDelay) {
+        return new DownloadEngine(4, new FetchPolicy(Duration.ofSeconds(5), Duration.ofSeconds(5),
+                Duration.ofSeconds(5), 0, 3, Duration.ofMillis(1), Duration.ofMillis(2), hedgeDelay, 1 << 20));
+    }
+
+    public void testFastPrimaryIsNotHedged() throws IOException {
+        HttpResponse<InputStream> response = engine(Duration.ofSeconds(2))
+                .openHedged(URI.create(base(primary) + "f"), URI.create(base(backup) + "f"));
+        try (InputStream in = response.body()) {
+            assertEquals(new String(BODY, StandardCharsets.UTF_8), new String(in.readAllBytes(),
+                    StandardCharsets.UTF_8));
+        }
+        assertEquals(1, primaryRequests.get());
+        assertEquals(0, backupRequests.get());
+    }
+
+    public void testSlowPrimaryIsHedgedAndLoserClosed() throws Exception {
+        primaryDelayMillis = 1000;
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = engine(Duration.ofMillis(100))
+                .openHedged(URI.create(base(primary) + "f"), URI.create(base(backup) + "f"));
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 900);
+        assertEquals(base(backup) + "f", response.uri().toString());
+        try (InputStream in = response.body()) {
+            assertEquals(BODY.length, in.readAllBytes().length);
+        }
+        assertEquals(1, backupRequests.get());
+        // The primary's 64 MiB answer must be dropped, not buffered or read
+        assertTrue("Loser was not closed", loserClosed.await(10, TimeUnit.SECONDS));
+    }
+
+    public void testServerErrorFailsOverAndCountsAgainstMirror() throws IOException {
+        primaryStatus = 503;
+        MirrorSet set = new MirrorSet("test", List.of(base(primary), base(backup)));
+        MirrorSet.register(set);
+        try {
+            File target = new File(dir, "f");
+            engine(Duration.ZERO).download(base(primary) + "f", target, null, BODY.length);
+            assertEquals(BODY.length, target.length());
+            assertEquals(List.of(base(backup) + "f", base(primary) + "f"), set.candidates(base(primary) + "f"));
+        } finally {
+            MirrorSet.unregister(set);
+        }
+    }
+
+    public void testMissingFileDoesNotCountAgainstMirror() throws IOException {
+        primaryStatus = 404;
+        MirrorSet set = new MirrorSet("test", List.of(base(primary), base(backup)));
+        MirrorSet.register(set);
+        try {
+            File target = new File(dir, "f");
+            engine(Duration.ZERO).download(base(primary) + "f", target, null, BODY.length);
+            assertEquals(BODY.length, target.length());
+            assertEquals(1, primaryRequests.get());
+            assertEquals(List.of(base(primary) + "f", base(backup) + "f"), set.candidates(base(primary) + "f"));
+        } finally {
+            MirrorSet.unregister(set);
+        }
+    }
+
+    public void testHashMismatchIsRetriedAndOnlyGoodBodyCommitted() throws IOException {
+        badAnswers = 2;
+        File target = new File(dir, "flaky");
+        engine(Duration.ZERO).download(base(primary) + "flaky", target, sha1(BODY), BODY.length);
+
+        assertEquals(3, flakyRequests.get());
+        assertFalse("Target existed before the good body", targetSeenEarly);
+        assertTrue(Arrays.equals(BODY, Files.readAllBytes(target.toPath())));
+        assertNoTempFiles();
+    }
+
+    public void testFailedDownloadLeavesTargetUntouched() throws IOException {
+        badAnswers = Integer.MAX_VALUE;
+        File target = new File(dir, "flaky");
+        Files.writeString(target.toPath(), "previous");
+        long modified = target.lastModified();
+        try {
+            engine(Duration.ZERO).download(base(primary) + "flaky", target, sha1(BODY), BODY.length);
+            fail("Corrupt body was accepted");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("SHA-1 mismatch"));
+        }
+        assertEquals(3, flakyRequests.get());
+        assertEquals("previous", Files.readString(target.toPath()));
+        assertEquals(modified, target.lastModified());
+        assertNoTempFiles();
+    }
+
+    public void testSizeMismatchIsRetried() throws IOException {
+        File target = new File(dir, "short");
+        try {
+            engine(Duration.ZERO).download(base(backup) + "short", target, null, BODY.length + 1);
+            fail("Short body was accepted");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Size mismatch"));
+        }
+        assertEquals(3, backupRequests.get());
+        assertFalse(target.exists());
+        assertNoTempFiles();
+    }
+
+    private static String sha1(byte[] data) {
+        return Hashing.toHex(Hashing.newSha1().digest(data));
+    }
+
+    private void assertNoTempFiles() {
+        String[] temps = dir.list((d, name) -> name.endsWith(".tmp"));
+        assertEquals(0, temps.length);
+    }
+}
@@ -0,0 +1,101 @@
+package com.launcher;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link DownloadScheduler} and its adaptive limit, driven by a fake
+ * clock.
+ */
+public class DownloadSchedulerTest extends TestCase {
+    private static final long WINDOW = DownloadScheduler.AdaptiveLimit.WINDOW_NANOS;
+
+    private final AtomicLong now = new AtomicLong(1_000 * WINDOW);
+
+    private DownloadScheduler.AdaptiveLimit limit(int initial, int min, int max) {
+        return new DownloadScheduler.AdaptiveLimit(initial, min, max, now::get);
+    }
+
+    /** Records {@code jobs} results spread over one window, the last one closing it. */
+    private void window(DownloadScheduler.AdaptiveLimit limit, int jobs, int errors, long bytesPerJob) {
+        for (int i = 0; i < jobs; i++) {
+            if (i == jobs - 1)
+                now.addAndGet(WINDOW);
+            limit.record(i < errors ? 0 : bytesPerJob, i < errors);
+        }
+    }
+
+    public void testInitialIsClamped() {
+        assertEquals(16, limit(64, 2, 16).current());
+        assertEquals(2, limit(1, 2, 16).current());
+    }
+
+    public void testNoDecisionBeforeWindowEnds() {
+        DownloadScheduler.AdaptiveLimit limit = limit(8, 2, 16);
+        for (int i = 0; i < 100; i++)
+            limit.record(0, true);
+        assertEquals(8, limit.current());
+    }
+
+    public void testHalvesOnHighErrorRate() {
+        DownloadScheduler.AdaptiveLimit limit = limit(8, 2, 16);
+        window(limit, 10, 2, 1000);
+        assertEquals(4, limit.current());
+        window(limit, 10, 2, 1000);
+        window(limit, 10, 2, 1000);
+        assertEquals(2, limit.current());
+    }
+
+    public void testFewErrorsDoNotHalve() {
+        DownloadScheduler.AdaptiveLimit limit = limit(8, 2, 16);
+        window(limit, 10, 1, 1000);
+        assertEquals(10, limit.current());
+    }
+
+    public void testGrowsWhileThroughputImprovesUpToMax() {
+        DownloadScheduler.AdaptiveLimit limit = limit(8, 2, 16);
+        long bytes = 1000;
+        for (int i = 0; i < 10; i++) {
+            window(limit, 10, 0, bytes);
+            bytes *= 2;
+        }
+        assertEquals(16, limit.current());
+    }
+
+    public void testBacksOffWhenThroughputDrops() {
+        DownloadScheduler.AdaptiveLimit limit = limit(8, 2, 16);
+        window(limit, 10, 0, 1000);
+        assertEquals(10, limit.current());
+        window(limit, 10, 0, 1000);
+        assertEquals(10, limit.current());
+        window(limit, 10, 0, 500);
+        assertEquals(9, limit.current());
+    }
+
+    public void testDefaultMaxIsEnginePerHostLimit() throws Exception {
+        DownloadScheduler scheduler = new DownloadScheduler("test");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            scheduler.add("job" + i, i, () -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } finally {
+                    running.decrementAndGet();
+                }
+                return 1 << 20;
+            });
+        }
+        DownloadScheduler.Result result = scheduler.run();
+        assertTrue(result.isSuccessful());
+        assertEquals(200, result.getCompleted());
+        assertTrue(result.getFinalLimit() <= DownloadEngine.shared().getPerHostLimit());
+        assertTrue(peak.get() <= DownloadEngine.shared().getPerHostLimit());
+    }
+}
@@ -0,0 +1,117 @@
+package com.launcher;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link FetchPolicy}: stall detection, backoff bounds and the
+ * lifetime of the stall watch.
+ */
+public class FetchPolicyTest extends TestCase {
+    private HttpServer server;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stall", this::stall);
+        server.start();
+        dir = Files.createTempDirectory("fetch").toFile();
+    }
+
+    @Override
+    protected void tearDown() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    /** Promises 1000 bytes, sends 10 and then goes quiet. */
+    private void stall(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, 1000);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(new byte[10]);
+            out.flush();
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException | IOException e) {
+            // Server stopped or client gone
+        }
+    }
+
+    private static FetchPolicy policy(Duration stallWindow, long minBytesPerSecond, int attempts,
+            Duration backoffBase, Duration backoffMax) {
+        return new FetchPolicy(Duration.ofSeconds(5), Duration.ofSeconds(5), stallWindow, minBytesPerSecond,
+                attempts, backoffBase, backoffMax, Duration.ZERO, 0);
+    }
+
+    public void testStalledBodyRaisesStallException() {
+        DownloadEngine engine = new DownloadEngine(4,
+                policy(Duration.ofMillis(200), 1024, 1, Duration.ofMillis(1), Duration.ofMillis(1)));
+        File target = new File(dir, "stalled.bin");
+        long start = System.nanoTime();
+        try {
+            engine.download("http://127.0.0.1:" + server.getAddress().getPort() + "/stall", target, null, 1000);
+            fail("Stalled transfer completed");
+        } catch (FetchPolicy.StallException expected) {
+            // The watchdog checks every 500 ms; without it the read would block until tearDown
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 5000);
+        } catch (IOException e) {
+            fail("Expected a stall, got " + e);
+        }
+        assertFalse(target.exists());
+        assertEquals(0, FetchPolicy.watchedTransfers());
+    }
+
+    public void testClosingTheGuardEndsTheWatch() throws IOException {
+        FetchPolicy policy = policy(Duration.ofSeconds(15), 1024, 1, Duration.ofMillis(1), Duration.ofMillis(1));
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[100]);
+        ReadableByteChannel guard = policy.guard(in, Channels.newChannel(in), "memory");
+        assertEquals(1, FetchPolicy.watchedTransfers());
+        assertEquals(100, guard.read(ByteBuffer.allocate(1000)));
+        guard.close();
+        assertEquals(0, FetchPolicy.watchedTransfers());
+    }
+
+    public void testWithoutMinimumThroughputNothingIsWatched() {
+        FetchPolicy policy = policy(Duration.ofSeconds(15), 0, 1, Duration.ofMillis(1), Duration.ofMillis(1));
+        ByteArrayInputStream in = new ByteArrayInputStream(new byte[1]);
+        ReadableByteChannel channel = Channels.newChannel(in);
+        assertSame(channel, policy.guard(in, channel, "memory"));
+        assertEquals(0, FetchPolicy.watchedTransfers());
+    }
+
+    public void testBackoffStaysWithinBounds() throws IOException {
+        FetchPolicy policy = policy(Duration.ofSeconds(15), 0, 4, Duration.ofMillis(40), Duration.ofMillis(100));
+        // Retry 1 waits 20-40 ms, retry 5 is capped at 50-100 ms
+        assertBetween(20, 40, sleptMillis(policy, 1));
+        assertBetween(50, 100, sleptMillis(policy, 5));
+        assertBetween(50, 100, sleptMillis(policy, 30));
+    }
+
+    private static long sleptMillis(FetchPolicy policy, int retry) throws IOException {
+        long start = System.nanoTime();
+        policy.backoff(retry);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        // Sleeps may overshoot on a loaded machine, never undershoot
+        assertTrue(actual + " < " + min, actual >= min);
+        assertTrue(actual + " > " + max, actual <= max + 250);
+    }
+}
@@ -0,0 +1,34 @@
+package com.launcher;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link GameLauncher#instanceDirectory(String)}.
+ */
+public class GameLauncherTest extends TestCase {
+    private final File workDir = new File("/tmp/launcher-work");
+    private final GameLauncher launcher = new GameLauncher(workDir);
+
+    public void testDefaultInstanceIsWorkDirectory() {
+        assertEquals(workDir, launcher.instanceDirectory(null));
+        assertEquals(workDir, launcher.instanceDirectory("  "));
+        assertEquals(workDir, launcher.instanceDirectory(GameLauncher.DEFAULT_INSTANCE));
+    }
+
+    public void testNamedInstance() {
+        assertEquals(new File(workDir, "instances/Modded 1.21"), launcher.instanceDirectory(" Modded 1.21 "));
+    }
+
+    public void testSeparatorsAreReplaced() {
+        assertEquals(new File(workDir, "instances/.._.._etc"), launcher.instanceDirectory("../../etc"));
+        assertEquals(new File(workDir, "instances/a_b"), launcher.instanceDirectory("a\\b"));
+    }
+
+    public void testDotNamesStayInsideInstances() {
+        assertEquals(new File(workDir, "instances/_"), launcher.instanceDirectory("."));
+        assertEquals(new File(workDir, "instances/__"), launcher.instanceDirectory(" .. "));
+        assertEquals(new File(workDir, "instances/___"), launcher.instanceDirectory("..."));
+    }
+}
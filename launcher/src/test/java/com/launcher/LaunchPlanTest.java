@@ -0,0 +1,122 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the staleness checks of {@link LaunchPlan}.
+ */
+public class LaunchPlanTest extends TestCase {
+    private static final String SELECTION = "Forge 1.20.1-47.2.0";
+    private static final String SETTINGS = "settings-hash";
+
+    private File workDir;
+    private File clientJar;
+    private File libraryJar;
+    private File nativesDir;
+    private File argFile;
+    private File assetsDir;
+    private File assetIndex;
+    private LaunchPlan plan;
+
+    @Override
+    protected void setUp() throws IOException {
+        workDir = Files.createTempDirectory("plan").toFile();
+        write("versions/forge/forge.json", "{\"id\":\"forge\",\"inheritsFrom\":\"1.20.1\"}");
+        write("versions/1.20.1/1.20.1.json", "{\"id\":\"1.20.1\"}");
+        clientJar = write("versions/1.20.1/1.20.1.jar", "client");
+        libraryJar = write("libraries/a/b/1/b-1.jar", "library");
+        nativesDir = new File(workDir, "natives/abc");
+        nativesDir.mkdirs();
+        argFile = write("launch-plans/args/x.args", "\"-cp\"");
+        assetsDir = new File(workDir, "assets");
+        assetIndex = write("assets/indexes/5.json", "{\"objects\":{}}");
+        new AssetLedger(assetsDir).markIndexVerified("5", assetIndex);
+
+        plan = new LaunchPlan("forge", List.of("java", "@" + argFile), clientJar.getAbsolutePath()
+                + File.pathSeparator + libraryJar.getAbsolutePath(), workDir, nativesDir, argFile, "5");
+        plan.save(workDir, SELECTION, SETTINGS);
+    }
+
+    private File write(String path, String content) throws IOException {
+        File file = new File(workDir, path);
+        file.getParentFile().mkdirs();
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+
+    public void testUnchangedPlanIsCurrent() {
+        assertNull(plan.checkCurrent(workDir, SETTINGS));
+        LaunchPlan loaded = LaunchPlan.loadIfCurrent(workDir, SELECTION, SETTINGS);
+        assertNotNull(loaded);
+        assertEquals(plan.getCommand(), loaded.getCommand());
+        assertEquals(plan.getClasspath(), loaded.getClasspath());
+        assertEquals(workDir.getAbsoluteFile(), loaded.getGameDirectory());
+    }
+
+    public void testChangedSettings() {
+        assertEquals("settings changed", plan.checkCurrent(workDir, "other"));
+        assertNull(LaunchPlan.loadIfCurrent(workDir, SELECTION, "other"));
+    }
+
+    public void testChangedParentJson() throws IOException {
+        write("versions/1.20.1/1.20.1.json", "{\"id\":\"1.20.1\",\"mainClass\":\"x\"}");
+        assertEquals("versions/1.20.1/1.20.1.json changed", plan.checkCurrent(workDir, SETTINGS));
+        assertNull(LaunchPlan.loadIfCurrent(workDir, SELECTION, SETTINGS));
+    }
+
+    public void testMissingVersionJson() {
+        new File(workDir, "versions/forge/forge.json").delete();
+        assertEquals("versions/forge/forge.json changed", plan.checkCurrent(workDir, SETTINGS));
+    }
+
+    public void testClasspathSizeChanged() throws IOException {
+        long mtime = libraryJar.lastModified();
+        Files.writeString(libraryJar.toPath(), "library, rebuilt");
+        libraryJar.setLastModified(mtime);
+        assertEquals("b-1.jar changed", plan.checkCurrent(workDir, SETTINGS));
+    }
+
+    public void testClasspathMtimeChanged() {
+        clientJar.setLastModified(clientJar.lastModified() - 60_000);
+        assertEquals("1.20.1.jar changed", plan.checkCurrent(workDir, SETTINGS));
+    }
+
+    public void testClasspathEntryMissing() {
+        libraryJar.delete();
+        assertEquals("b-1.jar changed", plan.checkCurrent(workDir, SETTINGS));
+    }
+
+    public void testNativesMissing() {
+        nativesDir.delete();
+        assertEquals("natives missing", plan.checkCurrent(workDir, SETTINGS));
+    }
+
+    public void testArgFileMissing() {
+        argFile.delete();
+        assertEquals("argfile missing", plan.checkCurrent(workDir, SETTINGS));
+    }
+
+    public void testAssetIndexNotVerified() {
+        new AssetLedger(assetsDir).invalidateIndex("5");
+        assertEquals("assets not verified", plan.checkCurrent(workDir, SETTINGS));
+    }
+
+    public void testChangedAssetIndex() throws IOException {
+        write("assets/indexes/5.json", "{\"objects\":{\"a\":{}}}");
+        assertEquals("assets not verified", plan.checkCurrent(workDir, SETTINGS));
+    }
+
+    public void testSaveRefusesMissingClasspathEntry() {
+        libraryJar.delete();
+        try {
+            plan.save(workDir, SELECTION, SETTINGS);
+            fail("Saved a plan with a missing classpath entry");
+        } catch (IOException expected) {
+        }
+    }
+}
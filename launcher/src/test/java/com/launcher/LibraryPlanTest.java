@@ -0,0 +1,112 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.launcher.model.Version;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LibraryPlan}: rule filtering, deduplication and the stored
+ * plan cache.
+ */
+public class LibraryPlanTest extends TestCase {
+    private static final String LIBRARIES = "[{\"name\":\"com.mojang:child:2\","
+            + "\"downloads\":{\"artifact\":{\"path\":\"com/mojang/child/2/child-2.jar\",\"url\":\"https://x/c2\","
+            + "\"sha1\":\"aa\",\"size\":10}}},"
+            + "{\"name\":\"com.mojang:child:1\",\"downloads\":{\"artifact\":{\"path\":\"com/mojang/child/1/child-1.jar\"}}},"
+            + "{\"name\":\"org.ow2.asm:asm:9.5\",\"url\":\"https://maven.example/\"},"
+            + "{\"name\":\"com.mojang:osx-only:1\",\"rules\":[{\"action\":\"allow\",\"os\":{\"name\":\"osx\"}}],"
+            + "\"downloads\":{\"artifact\":{\"path\":\"com/mojang/osx-only/1/osx-only-1.jar\"}}},"
+            + "{\"name\":\"org.lwjgl.lwjgl:lwjgl-platform:2.9.4\",\"natives\":{\"linux\":\"natives-linux\"},"
+            + "\"extract\":{\"exclude\":[\"META-INF/\"]}}]";
+
+    private File workDir;
+
+    @Override
+    protected void setUp() throws IOException {
+        workDir = Files.createTempDirectory("libplan").toFile();
+    }
+
+    private static Version version(String chainHash) {
+        Version version = new Gson().fromJson("{\"id\":\"1.8.9\",\"libraries\":" + LIBRARIES + "}", Version.class);
+        version.setChainHash(chainHash);
+        return version;
+    }
+
+    private File planFile() {
+        return new File(workDir, "versions/1.8.9/1.8.9.libraries.json");
+    }
+
+    public void testComputeAppliesRulesAndDeduplicates() {
+        LibraryPlan plan = LibraryPlan.compute(version(null), RuleEngine.of("linux", "amd64", "", Set.of()), "linux",
+                "amd64");
+        List<LibraryPlan.Entry> classpath = plan.getClasspath();
+        assertEquals(2, classpath.size());
+        assertEquals("com/mojang/child/2/child-2.jar", classpath.get(0).getPath());
+        assertEquals(10, classpath.get(0).getSize());
+        assertFalse(classpath.get(0).isResolve());
+        assertEquals("org/ow2/asm/asm/9.5/asm-9.5.jar", classpath.get(1).getPath());
+        assertTrue(classpath.get(1).isResolve());
+        assertEquals("https://maven.example/", classpath.get(1).getRepository());
+
+        List<LibraryPlan.Entry> natives = plan.getNatives();
+        assertEquals(1, natives.size());
+        assertEquals("org/lwjgl/lwjgl/lwjgl-platform/2.9.4/lwjgl-platform-2.9.4-natives-linux.jar",
+                natives.get(0).getPath());
+        assertEquals(List.of("META-INF/"), natives.get(0).getExclude());
+    }
+
+    public void testStoredPlanIsReusedWhileKeyMatches() throws IOException {
+        LibraryPlan.load(workDir, version("chain-1"), "linux", "amd64");
+        assertTrue(planFile().isFile());
+        tamper();
+
+        LibraryPlan reused = LibraryPlan.load(workDir, version("chain-1"), "linux", "amd64");
+        assertEquals("https://tampered/", reused.getClasspath().get(0).getUrl());
+    }
+
+    public void testChangedChainHashRecomputes() throws IOException {
+        LibraryPlan.load(workDir, version("chain-1"), "linux", "amd64");
+        tamper();
+
+        LibraryPlan recomputed = LibraryPlan.load(workDir, version("chain-2"), "linux", "amd64");
+        assertEquals("https://x/c2", recomputed.getClasspath().get(0).getUrl());
+        assertFalse(Files.readString(planFile().toPath()).contains("tampered"));
+    }
+
+    public void testChangedPlatformRecomputes() throws IOException {
+        LibraryPlan.load(workDir, version("chain-1"), "linux", "amd64");
+        tamper();
+
+        assertEquals("https://x/c2", LibraryPlan.load(workDir, version("chain-1"), "linux", "aarch64")
+                .getClasspath().get(0).getUrl());
+        LibraryPlan osx = LibraryPlan.load(workDir, version("chain-1"), "osx", "aarch64");
+        assertEquals(3, osx.getClasspath().size());
+        assertTrue(osx.getNatives().isEmpty());
+    }
+
+    public void testDamagedPlanRecomputes() throws IOException {
+        LibraryPlan.load(workDir, version("chain-1"), "linux", "amd64");
+        Files.writeString(planFile().toPath(), "{ not json");
+        assertEquals(2, LibraryPlan.load(workDir, version("chain-1"), "linux", "amd64").getClasspath().size());
+    }
+
+    public void testUnhashedVersionIsNotStored() throws IOException {
+        LibraryPlan plan = LibraryPlan.load(workDir, version(null), "linux", "amd64");
+        assertEquals(2, plan.getClasspath().size());
+        assertFalse(planFile().exists());
+    }
+
+    /** Rewrites the stored plan so a reused plan can be told from a recomputed one. */
+    private void tamper() throws IOException {
+        String json = Files.readString(planFile().toPath());
+        assertTrue(json.contains("https://x/c2"));
+        Files.writeString(planFile().toPath(), json.replace("https://x/c2", "https://tampered/"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.launcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link LogEventParser}.
+ */
+public class LogEventParserTest extends TestCase {
+    private LogEventParser parser;
+    private List<String> seen;
+
+    @Override
+    protected void setUp() {
+        parser = new LogEventParser();
+        seen = new ArrayList<>();
+        // Events are reused, so copy what the assertions need
+        parser.addListener(e -> seen.add(e.getLevel() + "|" + e.getThread() + "|" + e.getMessage() + "|"
+                + e.isContinuation()));
+    }
+
+    private void feed(boolean error, String... texts) {
+        List<GameOutput.Line> lines = new ArrayList<>();
+        for (String text : texts) {
+            lines.add(new GameOutput.Line(text, error, 0));
+        }
+        parser.accept(lines);
+    }
+
+    public void testVanillaHeader() {
+        feed(false, "[12:34:56] [Render thread/INFO]: Setting user: Steve");
+        assertEquals(List.of("INFO|Render thread|Setting user: Steve|false"), seen);
+        assertEquals(1, parser.getCount("INFO"));
+    }
+
+    public void testForgeLoggerBlock() {
+        feed(false, "[12:34:56] [main/WARN] [net.minecraftforge.fml/]: Mod file is missing a manifest");
+        assertEquals(List.of("WARN|main|Mod file is missing a manifest|false"), seen);
+    }
+
+    public void testContinuationKeepsLevel() {
+        feed(false, "[12:34:56] [Server thread/ERROR]: Exception ticking world");
+        feed(true, "\tat net.minecraft.Foo.bar(Foo.java:1)", "Caused by: java.io.IOException");
+        assertEquals("ERROR|Server thread|\tat net.minecraft.Foo.bar(Foo.java:1)|true", seen.get(1));
+        assertEquals("ERROR|Server thread|Caused by: java.io.IOException|true", seen.get(2));
+        assertEquals(1, parser.getCount("ERROR"));
+    }
+
+    public void testPlainLinesTakeLevelFromStream() {
+        feed(false, "Loading natives");
+        feed(true, "Exception in thread \"main\"");
+        assertEquals(List.of("INFO||Loading natives|false", "ERROR||Exception in thread \"main\"|false"), seen);
+        assertEquals(1, parser.getCount("INFO"));
+        assertEquals(1, parser.getCount("ERROR"));
+        assertEquals(0, parser.getCount("WARN"));
+    }
+}
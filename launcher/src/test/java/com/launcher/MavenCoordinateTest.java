@@ -0,0 +1,50 @@
+package com.launcher;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link MavenCoordinate}.
+ */
+public class MavenCoordinateTest extends TestCase {
+    public void testParsePlainCoordinate() {
+        MavenCoordinate c = MavenCoordinate.parse("com.google.code.gson:gson:2.10.1");
+        assertEquals("com.google.code.gson", c.getGroup());
+        assertEquals("gson", c.getArtifact());
+        assertEquals("2.10.1", c.getVersion());
+        assertNull(c.getClassifier());
+        assertEquals("jar", c.getExtension());
+        assertEquals("com/google/code/gson/gson/2.10.1/gson-2.10.1.jar", c.getPath());
+        assertEquals("com.google.code.gson:gson", c.getVersionlessKey());
+    }
+
+    public void testParseClassifier() {
+        MavenCoordinate c = MavenCoordinate.parse("org.lwjgl:lwjgl:3.3.3:natives-linux");
+        assertEquals("natives-linux", c.getClassifier());
+        assertEquals("org/lwjgl/lwjgl/3.3.3/lwjgl-3.3.3-natives-linux.jar", c.getPath());
+        assertEquals("org.lwjgl:lwjgl:natives-linux", c.getVersionlessKey());
+    }
+
+    public void testParseExtension() {
+        MavenCoordinate c = MavenCoordinate.parse("de.oceanlabs.mcp:mcp_config:1.21.1-20240808.144430@zip");
+        assertEquals("1.21.1-20240808.144430", c.getVersion());
+        assertEquals("zip", c.getExtension());
+        assertEquals("de/oceanlabs/mcp/mcp_config/1.21.1-20240808.144430/mcp_config-1.21.1-20240808.144430.zip",
+                c.getPath());
+    }
+
+    public void testToStringRoundTrips() {
+        for (String name : new String[] { "a.b:c:1", "a.b:c:1:natives-osx", "a.b:c:1@zip", "a.b:c:1:x@txt" }) {
+            assertEquals(name, MavenCoordinate.parse(name).toString());
+        }
+    }
+
+    public void testRejectsMalformedNames() {
+        for (String name : new String[] { "a.b:c", "a:b:c:d:e", "" }) {
+            try {
+                MavenCoordinate.parse(name);
+                fail("Accepted " + name);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
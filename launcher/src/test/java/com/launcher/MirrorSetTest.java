@@ -0,0 +1,63 @@
+package com.launcher;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the ordering of {@link MirrorSet#candidates(String)}.
+ */
+public class MirrorSetTest extends TestCase {
+    private static final String A = "https://a.example/";
+    private static final String B = "https://b.example/";
+    private static final long MILLIS = 1_000_000;
+
+    private MirrorSet set;
+
+    @Override
+    protected void setUp() {
+        set = new MirrorSet("test", List.of(A, B));
+        MirrorSet.register(set);
+    }
+
+    @Override
+    protected void tearDown() {
+        MirrorSet.unregister(set);
+    }
+
+    public void testUrlOutsideTheSetIsReturnedAlone() {
+        assertEquals(List.of("https://c.example/x"), set.candidates("https://c.example/x"));
+        assertNull(MirrorSet.forUrl("https://c.example/x"));
+        assertSame(set, MirrorSet.forUrl(B + "x"));
+    }
+
+    public void testUnmeasuredOriginComesFirst() {
+        MirrorSet.recordLatency(B + "x", 10 * MILLIS);
+        assertEquals(List.of(A + "x", B + "x"), set.candidates(A + "x"));
+    }
+
+    public void testSlightlySlowerOriginKeepsFirstPlace() {
+        MirrorSet.recordLatency(A + "x", 100 * MILLIS);
+        MirrorSet.recordLatency(B + "x", 50 * MILLIS);
+        assertEquals(List.of(A + "x", B + "x"), set.candidates(A + "x"));
+    }
+
+    public void testFailingMirrorDropsBehindAndRecovers() {
+        MirrorSet.recordLatency(A + "x", 100 * MILLIS);
+        MirrorSet.recordLatency(B + "x", 100 * MILLIS);
+        MirrorSet.recordFailure(A + "x");
+        assertEquals(List.of(B + "x", A + "x"), set.candidates(A + "x"));
+
+        // The failure penalty decays with each success until A is back within the margin
+        for (int i = 0; i < 10; i++) {
+            MirrorSet.recordLatency(A + "x", 100 * MILLIS);
+        }
+        assertEquals(List.of(A + "x", B + "x"), set.candidates(A + "x"));
+    }
+
+    public void testFailedUntriedMirrorIsNotPreferred() {
+        MirrorSet.recordFailure(A + "x");
+        MirrorSet.recordLatency(B + "x", 900 * MILLIS);
+        assertEquals(List.of(B + "x", A + "x"), set.candidates(A + "x"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.google.gson.Gson;
+import com.launcher.model.Version;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the native extraction cache of {@link NativesManager}.
+ */
+public class NativesManagerTest extends TestCase {
+    private static final String PATH = "org/lwjgl/lwjgl/lwjgl-platform/2.9.4/lwjgl-platform-2.9.4-natives-linux.jar";
+
+    private File workDir;
+    private NativesManager natives;
+
+    @Override
+    protected void setUp() throws IOException {
+        workDir = Files.createTempDirectory("natives").toFile();
+        natives = new NativesManager(workDir);
+    }
+
+    /** A one-library version whose linux natives are {@link #PATH}, with the given excludes. */
+    private static LibraryPlan plan(String... excludes) {
+        String exclude = excludes.length == 0 ? "" : ",\"extract\":{\"exclude\":" + new Gson().toJson(excludes) + "}";
+        Version version = new Gson().fromJson("{\"id\":\"1.8.9\",\"libraries\":[{"
+                + "\"name\":\"org.lwjgl.lwjgl:lwjgl-platform:2.9.4\",\"natives\":{\"linux\":\"natives-linux\"}"
+                + exclude + ",\"downloads\":{\"classifiers\":{\"natives-linux\":"
+                + "{\"path\":\"" + PATH + "\",\"url\":\"https://libraries.minecraft.net/" + PATH + "\"}}}}]}",
+                Version.class);
+        return LibraryPlan.compute(version, RuleEngine.of("linux", "amd64", "", Set.of()), "linux", "amd64");
+    }
+
+    private void writeJar(String... names) throws IOException {
+        File jar = new File(workDir, "libraries/" + PATH);
+        jar.getParentFile().mkdirs();
+        try (OutputStream file = Files.newOutputStream(jar.toPath()); ZipOutputStream zip = new ZipOutputStream(file)) {
+            for (String name : names) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(name.getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+    }
+
+    public void testExtractsWithoutMetaInfAndExcludes() throws IOException {
+        writeJar("liblwjgl.so", "sub/libopenal.so", "META-INF/MANIFEST.MF", "META-INF/x", "skip/libjinput.so");
+        File dir = natives.prepare("1.8.9", plan("skip/"));
+
+        assertEquals("liblwjgl.so", Files.readString(new File(dir, "liblwjgl.so").toPath()));
+        assertTrue(new File(dir, "sub/libopenal.so").isFile());
+        assertFalse(new File(dir, "META-INF").exists());
+        assertFalse(new File(dir, "skip").exists());
+    }
+
+    public void testRefusesEntriesOutsideTheCache() throws IOException {
+        writeJar("liblwjgl.so", "../evil", "../../../evil2");
+        try {
+            natives.prepare("1.8.9", plan());
+            fail("Extracted an entry outside the cache");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith("Refusing to extract ../evil"));
+        }
+        assertFalse(new File(workDir, "natives/jars/evil").exists());
+        assertFalse(new File(workDir, "natives/evil").exists());
+        assertFalse(new File(workDir, "evil2").exists());
+        // Nothing half-extracted is left to be mistaken for a cache entry
+        assertEquals(0, new File(workDir, "natives/jars").list().length);
+        assertEquals(1, new File(workDir, "natives").list().length);
+    }
+
+    public void testSecondPrepareReusesTheSet() throws IOException {
+        writeJar("liblwjgl.so");
+        File first = natives.prepare("1.8.9", plan());
+        File marker = new File(first, "marker");
+        Files.writeString(marker.toPath(), "kept");
+
+        File second = natives.prepare("1.8.9", plan());
+        assertEquals(first, second);
+        assertTrue("Set was rebuilt", marker.isFile());
+    }
+
+    public void testChangedExcludesReuseTheExtractedJar() throws IOException {
+        writeJar("liblwjgl.so", "skip/libjinput.so");
+        File all = natives.prepare("1.8.9", plan());
+        File[] jars = new File(workDir, "natives/jars").listFiles();
+        assertEquals(1, jars.length);
+        // Planted in the per-jar cache: only shows up in a new set if the cache is linked, not re-extracted
+        Files.writeString(new File(jars[0], "cached").toPath(), "cached");
+
+        File filtered = natives.prepare("1.8.9", plan("skip/"));
+        assertFalse(all.equals(filtered));
+        assertTrue(new File(filtered, "cached").isFile());
+        assertFalse(new File(filtered, "skip").exists());
+        assertTrue(new File(all, "skip/libjinput.so").isFile());
+    }
+}
@@ -0,0 +1,119 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ResumableDownload} against a local HTTP server.
+ */
+public class ResumableDownloadTest extends TestCase {
+    private static final byte[] BODY = "resumable download test body".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile String userAgent;
+    private File dir;
+    private DownloadEngine engine;
+    private String url;
+
+    @Override
+    protected void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/file", this::serve);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file";
+        dir = Files.createTempDirectory("resumable").toFile();
+        engine = new DownloadEngine(4, new FetchPolicy(Duration.ofSeconds(5), Duration.ofSeconds(5),
+                Duration.ofSeconds(5), 0, 3, Duration.ofMillis(1), Duration.ofMillis(2), Duration.ZERO, 0));
+    }
+
+    @Override
+    protected void tearDown() {
+        server.stop(0);
+    }
+
+    /** Serves {@link #BODY} and honours open-ended ranges, answering 416 past the end. */
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        userAgent = exchange.getRequestHeaders().getFirst("User-Agent");
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        exchange.getResponseHeaders().add("ETag", "\"v1\"");
+        int from = 0;
+        int status = 200;
+        if (range != null) {
+            from = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+            if (from >= BODY.length) {
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            status = 206;
+        }
+        byte[] body = Arrays.copyOfRange(BODY, from, BODY.length);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void writePart(File target, byte[] content) throws IOException {
+        Files.write(new File(target.getPath() + ".part").toPath(), content);
+        Files.writeString(new File(target.getPath() + ".part.meta").toPath(),
+                "url=" + url.replace(":", "\\:") + "\nvalidator=\"v1\"\nsegments=1\n"
+                        + "segment.0.start=0\nsegment.0.end=-1\nsegment.0.done=" + content.length + "\n");
+    }
+
+    public void testCompletePartIsCommittedWithoutRequest() throws IOException {
+        File target = new File(dir, "complete.jar");
+        writePart(target, BODY);
+
+        engine.downloadResumable(url, target, Hashing.toHex(Hashing.newSha1().digest(BODY)), BODY.length);
+
+        assertEquals(0, requests.get());
+        assertTrue(Arrays.equals(BODY, Files.readAllBytes(target.toPath())));
+        assertFalse(new File(target.getPath() + ".part").exists());
+        assertFalse(new File(target.getPath() + ".part.meta").exists());
+    }
+
+    public void testUnsatisfiableRangeRestartsFromScratch() throws IOException {
+        File target = new File(dir, "unknown-size.jar");
+        writePart(target, BODY);
+
+        // Unknown size: the resume asks for bytes past the end and gets 416
+        engine.downloadResumable(url, target, null, -1);
+
+        assertEquals(2, requests.get());
+        assertTrue(Arrays.equals(BODY, Files.readAllBytes(target.toPath())));
+        assertFalse(new File(target.getPath() + ".part").exists());
+    }
+
+    public void testPartialPartIsResumed() throws IOException {
+        File target = new File(dir, "partial.jar");
+        writePart(target, Arrays.copyOf(BODY, 10));
+
+        engine.downloadResumable(url, target, Hashing.toHex(Hashing.newSha1().digest(BODY)), BODY.length);
+
+        assertEquals(1, requests.get());
+        assertTrue(Arrays.equals(BODY, Files.readAllBytes(target.toPath())));
+    }
+
+    public void testCallerUserAgentReplacesDefault() throws IOException {
+        File target = new File(dir, "installer.jar");
+        engine.downloadResumable(url, target, null, -1, "User-Agent", "Mozilla/5.0 test");
+
+        assertEquals("Mozilla/5.0 test", userAgent);
+        assertTrue(Arrays.equals(BODY, Files.readAllBytes(target.toPath())));
+    }
+}
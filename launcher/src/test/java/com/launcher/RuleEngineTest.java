@@ -0,0 +1,80 @@
+package com.launcher;
+
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.launcher.model.Library;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link RuleEngine}.
+ */
+public class RuleEngineTest extends TestCase {
+    private static final Gson GSON = new Gson();
+
+    private static List<Library.Rule> rules(String json) {
+        return GSON.fromJson(json, new TypeToken<List<Library.Rule>>() {
+        }.getType());
+    }
+
+    public void testMissingOrEmptyRulesAllow() {
+        RuleEngine engine = RuleEngine.of("linux", "amd64", "6.1", Set.of());
+        assertTrue(engine.allows(null));
+        assertTrue(engine.allows(List.of()));
+        assertTrue(engine.allowsJson(null));
+    }
+
+    public void testNothingMatchingDisallows() {
+        RuleEngine engine = RuleEngine.of("linux", "amd64", "6.1", Set.of());
+        assertFalse(engine.allows(rules("[{\"action\":\"allow\",\"os\":{\"name\":\"osx\"}}]")));
+    }
+
+    public void testLastMatchingRuleWins() {
+        List<Library.Rule> rules = rules("[{\"action\":\"allow\"},{\"action\":\"disallow\",\"os\":{\"name\":\"osx\"}}]");
+        assertTrue(RuleEngine.of("linux", "amd64", "6.1", Set.of()).allows(rules));
+        assertFalse(RuleEngine.of("osx", "aarch64", "14.0", Set.of()).allows(rules));
+    }
+
+    public void testArchSpellingsAreNormalized() {
+        assertEquals("x86_64", RuleEngine.normalizeArch("amd64"));
+        assertEquals("x86", RuleEngine.normalizeArch("i686"));
+        assertEquals("arm64", RuleEngine.normalizeArch("aarch64"));
+        assertEquals("arm32", RuleEngine.normalizeArch("arm"));
+
+        List<Library.Rule> rules = rules("[{\"action\":\"allow\",\"os\":{\"arch\":\"x86\"}}]");
+        assertTrue(RuleEngine.of("windows", "i386", "10.0", Set.of()).allows(rules));
+        assertFalse(RuleEngine.of("windows", "amd64", "10.0", Set.of()).allows(rules));
+    }
+
+    public void testVersionIsARegex() {
+        List<Library.Rule> rules = rules("[{\"action\":\"allow\"},"
+                + "{\"action\":\"disallow\",\"os\":{\"name\":\"osx\",\"version\":\"^10\\\\.5\\\\.\\\\d$\"}}]");
+        assertFalse(RuleEngine.of("osx", "x86_64", "10.5.8", Set.of()).allows(rules));
+        assertTrue(RuleEngine.of("osx", "x86_64", "10.15.7", Set.of()).allows(rules));
+    }
+
+    public void testFeatures() {
+        List<Library.Rule> rules = rules("[{\"action\":\"allow\",\"features\":{\"has_custom_resolution\":true}}]");
+        assertTrue(RuleEngine.of("linux", "amd64", "6.1", Set.of("has_custom_resolution")).allows(rules));
+        assertFalse(RuleEngine.of("linux", "amd64", "6.1", Set.of()).allows(rules));
+
+        List<Library.Rule> notDemo = rules("[{\"action\":\"allow\",\"features\":{\"is_demo_user\":false}}]");
+        assertTrue(RuleEngine.of("linux", "amd64", "6.1", Set.of()).allows(notDemo));
+    }
+
+    public void testAllowsJsonReadsRawRuleLists() {
+        Object raw = GSON.fromJson("[{\"action\":\"allow\",\"os\":{\"name\":\"windows\"}}]", Object.class);
+        assertTrue(RuleEngine.of("windows", "amd64", "10.0", Set.of()).allowsJson(raw));
+        assertFalse(RuleEngine.of("linux", "amd64", "6.1", Set.of()).allowsJson(raw));
+    }
+
+    public void testEnginesAreSharedPerEnvironment() {
+        RuleEngine a = RuleEngine.of("linux", "amd64", "6.1", Set.of("has_custom_resolution"));
+        RuleEngine b = RuleEngine.of("linux", "x86_64", "6.1", Set.of("has_custom_resolution"));
+        assertSame(a, b);
+        assertFalse(a.getKey().equals(RuleEngine.of("linux", "amd64", "6.1", Set.of()).getKey()));
+    }
+}
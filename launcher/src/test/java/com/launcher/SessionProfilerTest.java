@@ -0,0 +1,62 @@
+package com.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link SessionProfiler}: recording names and the class load
+ * totals of {@link SessionProfiler.Summary}.
+ */
+public class SessionProfilerTest extends TestCase {
+
+    public void testNestedClassLoadsCountOnce() {
+        SessionProfiler.Summary summary = new SessionProfiler.Summary();
+        summary.addClassLoad(1, 0, 100);
+        summary.addClassLoad(1, 10, 40); // Loaded while loading the first
+        summary.addClassLoad(1, 50, 90);
+        assertEquals(Duration.ofNanos(100), summary.classLoadTime());
+    }
+
+    public void testOverlappingAndDisjointLoadsOnOneThread() {
+        SessionProfiler.Summary summary = new SessionProfiler.Summary();
+        summary.addClassLoad(1, 200, 300);
+        summary.addClassLoad(1, 0, 100);
+        summary.addClassLoad(1, 50, 150); // Extends past the first
+        assertEquals(Duration.ofNanos(250), summary.classLoadTime());
+    }
+
+    public void testThreadsAreAddedUp() {
+        SessionProfiler.Summary summary = new SessionProfiler.Summary();
+        summary.addClassLoad(1, 0, 100);
+        summary.addClassLoad(2, 0, 100);
+        summary.addClassLoad(2, 20, 30);
+        assertEquals(Duration.ofNanos(200), summary.classLoadTime());
+    }
+
+    public void testNoClassLoads() {
+        assertEquals(Duration.ZERO, new SessionProfiler.Summary().classLoadTime());
+    }
+
+    public void testInstancesRecordToTheirOwnFiles() throws IOException {
+        File workDir = Files.createTempDirectory("profiles").toFile();
+        GameLauncher launcher = new GameLauncher(workDir);
+        String session = "20261018-120000-1.21.1";
+        File first = new SessionProfiler(launcher.instanceDirectory("default")).begin(session).getFile();
+        File second = new SessionProfiler(launcher.instanceDirectory("Modded")).begin(session).getFile();
+        assertEquals(new File(workDir, "profiles/" + session + ".jfr"), first);
+        assertEquals(new File(workDir, "instances/Modded/profiles/" + session + ".jfr"), second);
+    }
+
+    public void testTakenNameGetsSuffix() throws IOException {
+        SessionProfiler profiler = new SessionProfiler(Files.createTempDirectory("profiles").toFile());
+        File first = profiler.begin("s").getFile();
+        Files.writeString(first.toPath(), "dumped");
+        File second = profiler.begin("s").getFile();
+        assertEquals("s-2.jfr", second.getName());
+        assertTrue(first.isFile());
+    }
+}